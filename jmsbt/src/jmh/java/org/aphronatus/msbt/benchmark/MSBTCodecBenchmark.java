@@ -0,0 +1,145 @@
+package org.aphronatus.msbt.benchmark;
+
+import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.io.MSBTReference;
+import org.aphronatus.msbt.io.reader.MSBTReaderFile;
+import org.aphronatus.msbt.io.reader.MSBTReaderYAMLFile;
+import org.aphronatus.msbt.io.writer.MSBTWriterFile;
+import org.aphronatus.msbt.io.writer.MSBTWriterYAMLFile;
+import org.aphronatus.msbt.utils.ByteBufferFile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of the MSBT codec over the example files of one directory. Each
+ * operation handles every file of the directory once, so with the gc profiler
+ * gc.alloc.rate.norm is the allocation for the whole directory.
+ *
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MSBTCodecBenchmark {
+
+    @Param("src/test/resources/msbt_examples")
+    public String examplesPath;
+
+    @Param({"ActorMsg", "EventFlowMsg", "StaffRollMsg"})
+    public String directory;
+
+    private final List<File> files = new ArrayList<>();
+    private final List<ByteBuffer> labelSections = new ArrayList<>();
+    private final List<ByteBuffer> textSections = new ArrayList<>();
+    private final List<MSBT> documents = new ArrayList<>();
+    private final List<byte[]> yamlDocuments = new ArrayList<>();
+
+    private Path outputDirectory;
+    private final List<File> outputFiles = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        try (Stream<Path> paths = Files.list(Path.of(examplesPath, directory))) {
+            paths.filter(path -> path.toString().endsWith(MSBTReference.MSBT_FILE_EXTENSION))
+                .sorted()
+                .forEach(path -> files.add(path.toFile()));
+        }
+
+        outputDirectory = Files.createTempDirectory("jmsbt-benchmark");
+
+        for (File file : files) {
+            var bufferFile = new ByteBufferFile(file.getAbsolutePath());
+            var header = MSBTReaderFile.readHeader(bufferFile);
+
+            MSBTReaderFile.forEachSection(header.getSectionSize(), bufferFile, (name, section) -> {
+                switch (name) {
+                    case MSBTReference.SECTION_LBL1 -> labelSections.add(section);
+                    case MSBTReference.SECTION_TXT2 -> textSections.add(section);
+                }
+            });
+
+            MSBT msbt = MSBTReaderFile.fromFile(file);
+            documents.add(msbt);
+
+            var yaml = new ByteArrayOutputStream();
+            MSBTWriterYAMLFile.write(msbt, yaml);
+            yamlDocuments.add(yaml.toByteArray());
+
+            outputFiles.add(outputDirectory.resolve(file.getName()).toFile());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(outputDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void fromFile(Blackhole blackhole) throws IOException {
+        for (File file : files) {
+            blackhole.consume(MSBTReaderFile.fromFile(file));
+        }
+    }
+
+    @Benchmark
+    public void readStringTable(Blackhole blackhole) {
+        for (ByteBuffer section : textSections) {
+            blackhole.consume(MSBTReaderFile.readStringTable(section.duplicate().order(section.order())));
+        }
+    }
+
+    @Benchmark
+    public void readLabelGroups(Blackhole blackhole) {
+        for (ByteBuffer section : labelSections) {
+            blackhole.consume(MSBTReaderFile.readLabelGroups(section.duplicate().order(section.order())));
+        }
+    }
+
+    @Benchmark
+    public void writeFile() throws IOException {
+        for (int i = 0; i < documents.size(); i++) {
+            MSBTWriterFile.writeFile(documents.get(i), outputFiles.get(i));
+        }
+    }
+
+    @Benchmark
+    public void yamlRead(Blackhole blackhole) throws IOException {
+        for (byte[] yaml : yamlDocuments) {
+            blackhole.consume(MSBTReaderYAMLFile.read(new ByteArrayInputStream(yaml)));
+        }
+    }
+
+    @Benchmark
+    public void yamlWrite(Blackhole blackhole) throws IOException {
+        for (MSBT msbt : documents) {
+            var yaml = new ByteArrayOutputStream();
+            MSBTWriterYAMLFile.write(msbt, yaml);
+            blackhole.consume(yaml);
+        }
+    }
+
+    @Benchmark
+    public void getLabelsFilled(Blackhole blackhole) {
+        for (MSBT msbt : documents) {
+            blackhole.consume(msbt.getLabelsFilled());
+        }
+    }
+}
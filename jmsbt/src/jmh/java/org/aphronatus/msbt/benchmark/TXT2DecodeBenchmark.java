@@ -0,0 +1,105 @@
+package org.aphronatus.msbt.benchmark;
+
+import org.aphronatus.msbt.io.reader.MSBTReaderFile;
+import org.aphronatus.msbt.utils.ByteBufferFile;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the old per character TXT2 decoding with the bulk decoder.
+ *
+ * Each operation decodes the TXT2 sections of the example files until at least
+ * 1 MiB of TXT2 input is covered, so the gc profiler's gc.alloc.rate.norm reads
+ * as bytes allocated per MiB of TXT2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TXT2DecodeBenchmark {
+    private static final int INPUT_BYTES = 1024 * 1024;
+
+    @Param("src/test/resources/msbt_examples")
+    public String examplesPath;
+
+    private final List<ByteBuffer> sections = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        List<Path> files;
+
+        try (Stream<Path> paths = Files.walk(Path.of(examplesPath))) {
+            files = paths.filter(path -> path.toString().endsWith(".msbt")).sorted().toList();
+        }
+
+        int total = 0;
+
+        for (int i = 0; i < files.size() && total < INPUT_BYTES; i++) {
+            var bufferFile = new ByteBufferFile(files.get(i).toFile().getAbsolutePath());
+            var msbt = MSBTReaderFile.readHeader(bufferFile);
+
+            MSBTReaderFile.forEachSection(msbt.getSectionSize(), bufferFile, (name, section) -> {
+                if (name.equals("TXT2")) {
+                    sections.add(section);
+                }
+            });
+
+            total = sections.stream().mapToInt(ByteBuffer::limit).sum();
+        }
+    }
+
+    @Benchmark
+    public void bulk(Blackhole blackhole) {
+        for (ByteBuffer section : sections) {
+            blackhole.consume(MSBTReaderFile.readStringTable(section.duplicate().position(0).order(section.order())));
+        }
+    }
+
+    @Benchmark
+    public void perCharacter(Blackhole blackhole) {
+        for (ByteBuffer section : sections) {
+            blackhole.consume(readStringTablePerCharacter(section.duplicate().position(0).order(section.order())));
+        }
+    }
+
+    // Decoding used by MSBTReaderFile before the bulk decoder, one String per code unit
+    private static List<String> readStringTablePerCharacter(ByteBuffer sectionData) {
+        int textCount = sectionData.getInt();
+
+        int[] textOffsets = new int[textCount];
+        List<String> texts = new ArrayList<>(textCount);
+
+        for (int i = 0; i < textCount; i++) {
+            textOffsets[i] = sectionData.getInt();
+        }
+
+        for (int i = 0; i < textCount; i++) {
+            sectionData.position(textOffsets[i]);
+
+            StringBuilder text = new StringBuilder();
+            int nextOffset = i + 1 < textCount ? textOffsets[i + 1] : sectionData.limit();
+            byte[] bytes = new byte[2];
+
+            while (sectionData.position() < nextOffset) {
+                sectionData.get(bytes);
+                text.append(new String(bytes, StandardCharsets.UTF_16LE));
+            }
+
+            texts.add(text.toString());
+        }
+
+        return texts;
+    }
+}
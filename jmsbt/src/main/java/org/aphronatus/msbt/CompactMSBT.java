@@ -0,0 +1,378 @@
+package org.aphronatus.msbt;
+
+import org.aphronatus.msbt.io.reader.MSBTReaderFile;
+import org.aphronatus.msbt.io.reader.MSBTVisitor;
+import org.aphronatus.msbt.utils.ByteBufferFile;
+import org.aphronatus.msbt.utils.LabelHashUtils;
+import org.aphronatus.msbt.utils.UTF16LEDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only MSBT kept in a few primitive arrays instead of one object per
+ * label and text: label names are stored as UTF-8 in one byte arena, texts in
+ * one char arena, and labels are ordered by LBL1 group. When read from a
+ * binary file the texts are decoded from TXT2 straight into the char arena.
+ *
+ * Label {@code i} belongs to the group {@code g} where
+ * {@code groupStarts[g] <= i < groupStarts[g + 1]}.
+ */
+public class CompactMSBT {
+    private final short byteOrderMark;
+    private final short version;
+    private final short sectionSize;
+
+    private final int[] groupStarts;
+    private final byte[] nameArena;
+    private final int[] nameOffsets;
+    private final int[] tableIndexes;
+
+    private final char[] textArena;
+    private final int[] textOffsets;
+
+    private CompactMSBT(Builder builder) {
+        this.byteOrderMark = builder.byteOrderMark;
+        this.version = builder.version;
+        this.sectionSize = builder.sectionSize;
+
+        this.groupStarts = Arrays.copyOf(builder.groupStarts, builder.groupCount + 1);
+        this.groupStarts[builder.groupCount] = builder.labelCount;
+
+        this.nameArena = Arrays.copyOf(builder.nameArena, builder.nameArenaSize);
+        this.nameOffsets = Arrays.copyOf(builder.nameOffsets, builder.labelCount + 1);
+        this.nameOffsets[builder.labelCount] = builder.nameArenaSize;
+        this.tableIndexes = Arrays.copyOf(builder.tableIndexes, builder.labelCount);
+
+        this.textArena = Arrays.copyOf(builder.textArena, builder.textArenaSize);
+        this.textOffsets = Arrays.copyOf(builder.textOffsets, builder.textCount + 1);
+        this.textOffsets[builder.textCount] = builder.textArenaSize;
+    }
+
+    public static CompactMSBT fromFile(File file) throws IOException {
+        try {
+            return read(ByteBufferFile.map(file.getAbsolutePath()));
+        } catch (Exception e) {
+            throw new IOException("Error while reading MSBT file", e);
+        }
+    }
+
+    public static CompactMSBT fromBuffer(ByteBuffer buffer) throws IOException {
+        try {
+            return read(new ByteBufferFile(buffer.slice(), ByteOrder.LITTLE_ENDIAN));
+        } catch (Exception e) {
+            throw new IOException("Error while reading MSBT buffer", e);
+        }
+    }
+
+    private static CompactMSBT read(ByteBufferFile bufferFile) {
+        var builder = new Builder();
+        var header = MSBTReaderFile.readHeader(bufferFile);
+
+        builder.onHeader(header.getByteOrderMark(), header.getVersion(), header.getSectionSize());
+
+        MSBTReaderFile.forEachSection(header.getSectionSize(), bufferFile, (name, bufferSection) -> {
+            switch (name) {
+                case "LBL1" -> MSBTReaderFile.visitLabelGroups(bufferSection, builder);
+                case "TXT2" -> builder.readStringTable(bufferSection);
+            }
+        });
+
+        return builder.build();
+    }
+
+    /**
+     * Copies the bean model, the groups are numbered by their position in the
+     * list whatever their ids are. Labels outside of their hash bucket are
+     * moved to it, as MSBTWriterFile does.
+     */
+    public static CompactMSBT of(MSBT msbt) {
+        var builder = new Builder();
+        builder.onHeader(msbt.getByteOrderMark(), msbt.getVersion(), msbt.getSectionSize());
+
+        List<LabelGroup> groups = LabelHashUtils.placeLabels(msbt.getLabelGroups());
+
+        for (int group = 0; group < groups.size(); group++) {
+            List<Label> labels = groups.get(group).getLabels();
+
+            builder.onLabelGroup(group, labels.size());
+
+            for (Label label : labels) {
+                builder.onLabel(group, label.getName(), label.getTableIndex());
+            }
+        }
+
+        for (int i = 0; i < msbt.getStringTable().size(); i++) {
+            builder.onText(i, msbt.getStringTable().get(i));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Converts back to the bean model, the groups, labels and string table
+     * are new objects that can be modified.
+     */
+    public MSBT toMSBT() {
+        var msbt = new MSBT();
+        msbt.setByteOrderMark(byteOrderMark);
+        msbt.setVersion(version);
+        msbt.setSectionSize(sectionSize);
+
+        List<LabelGroup> groups = new ArrayList<>(groupCount());
+
+        for (int group = 0; group < groupCount(); group++) {
+            var labelGroup = new LabelGroup();
+            labelGroup.setId(group);
+            labelGroup.setLabels(new ArrayList<>(groupStarts[group + 1] - groupStarts[group]));
+
+            for (int label = groupStarts[group]; label < groupStarts[group + 1]; label++) {
+                var labelBean = new Label();
+                labelBean.setName(labelName(label));
+                labelBean.setTableIndex(tableIndexes[label]);
+
+                labelGroup.add(labelBean);
+            }
+
+            groups.add(labelGroup);
+        }
+
+        msbt.setLabelGroups(groups);
+        msbt.setStringTable(new ArrayList<>(asStringTable()));
+
+        return msbt;
+    }
+
+    public short getByteOrderMark() {
+        return byteOrderMark;
+    }
+
+    public short getVersion() {
+        return version;
+    }
+
+    public short getSectionSize() {
+        return sectionSize;
+    }
+
+    public int groupCount() {
+        return groupStarts.length - 1;
+    }
+
+    public int labelCount() {
+        return tableIndexes.length;
+    }
+
+    public int textCount() {
+        return textOffsets.length - 1;
+    }
+
+    public int groupStart(int group) {
+        return groupStarts[group];
+    }
+
+    public String labelName(int label) {
+        return new String(nameArena, nameOffsets[label], nameOffsets[label + 1] - nameOffsets[label], StandardCharsets.UTF_8);
+    }
+
+    public int tableIndex(int label) {
+        return tableIndexes[label];
+    }
+
+    public String text(int index) {
+        return new String(textArena, textOffsets[index], textOffsets[index + 1] - textOffsets[index]);
+    }
+
+    /**
+     * Read-only view of the text, nothing is copied.
+     */
+    public CharSequence textView(int index) {
+        return CharBuffer.wrap(textArena, textOffsets[index], textOffsets[index + 1] - textOffsets[index]).asReadOnlyBuffer();
+    }
+
+    /**
+     * Read-only string table, each text is copied out of the arena on access.
+     */
+    public List<String> asStringTable() {
+        return new StringTableView();
+    }
+
+    /**
+     * @return the index of the label, or -1 if there is no such label
+     */
+    public int findLabel(String labelName) {
+        if (groupCount() == 0) {
+            return -1;
+        }
+
+        int group = LabelHashUtils.bucket(labelName, groupCount());
+
+        for (int label = groupStarts[group]; label < groupStarts[group + 1]; label++) {
+            if (labelNameEquals(label, labelName)) {
+                return label;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the text of the label, or null if there is no such label
+     */
+    public String findText(String labelName) {
+        int label = findLabel(labelName);
+        return label == -1 ? null : text(tableIndexes[label]);
+    }
+
+    private boolean labelNameEquals(int label, String labelName) {
+        int start = nameOffsets[label];
+        int length = nameOffsets[label + 1] - start;
+
+        if (length < labelName.length()) {
+            return false;
+        }
+
+        // Compare ASCII names in place, anything else goes through decoding
+        for (int i = 0; i < labelName.length(); i++) {
+            char c = labelName.charAt(i);
+
+            if (c >= 0x80) {
+                return labelName(label).equals(labelName);
+            }
+
+            if (i >= length || nameArena[start + i] != c) {
+                return false;
+            }
+        }
+
+        return length == labelName.length();
+    }
+
+    private class StringTableView extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return text(index);
+        }
+
+        @Override
+        public int size() {
+            return textCount();
+        }
+    }
+
+    /**
+     * Appends labels and texts straight into the arenas, labels are expected
+     * in group order and texts in table order, as reported by the reader.
+     * {@link #readStringTable} decodes a whole TXT2 section without going
+     * through a String per text.
+     */
+    public static class Builder implements MSBTVisitor {
+        private short byteOrderMark;
+        private short version;
+        private short sectionSize;
+
+        private int groupCount = 0;
+        private int[] groupStarts = new int[16];
+
+        private int labelCount = 0;
+        private int[] nameOffsets = new int[64];
+        private int[] tableIndexes = new int[64];
+        private int nameArenaSize = 0;
+        private byte[] nameArena = new byte[1024];
+
+        private int textCount = 0;
+        private int[] textOffsets = new int[64];
+        private int textArenaSize = 0;
+        private char[] textArena = new char[4096];
+
+        @Override
+        public void onHeader(short byteOrderMark, short version, short sectionSize) {
+            this.byteOrderMark = byteOrderMark;
+            this.version = version;
+            this.sectionSize = sectionSize;
+        }
+
+        @Override
+        public void onLabelGroup(int groupId, int labelCount) {
+            if (groupId != groupCount) {
+                throw new IllegalStateException("Label groups must be added in order, expected " + groupCount + " got " + groupId);
+            }
+
+            groupStarts = ensureCapacity(groupStarts, groupCount + 2);
+            groupStarts[groupCount++] = this.labelCount;
+        }
+
+        @Override
+        public void onLabel(int groupId, String name, int tableIndex) {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+
+            nameOffsets = ensureCapacity(nameOffsets, labelCount + 2);
+            tableIndexes = ensureCapacity(tableIndexes, labelCount + 1);
+
+            if (nameArena.length < nameArenaSize + nameBytes.length) {
+                nameArena = Arrays.copyOf(nameArena, Math.max(nameArena.length * 2, nameArenaSize + nameBytes.length));
+            }
+
+            System.arraycopy(nameBytes, 0, nameArena, nameArenaSize, nameBytes.length);
+
+            nameOffsets[labelCount] = nameArenaSize;
+            tableIndexes[labelCount] = tableIndex;
+
+            nameArenaSize += nameBytes.length;
+            labelCount++;
+        }
+
+        @Override
+        public void onText(int tableIndex, String text) {
+            textOffsets = ensureCapacity(textOffsets, textCount + 2);
+
+            if (textArena.length < textArenaSize + text.length()) {
+                textArena = Arrays.copyOf(textArena, Math.max(textArena.length * 2, textArenaSize + text.length()));
+            }
+
+            text.getChars(0, text.length(), textArena, textArenaSize);
+
+            textOffsets[textCount++] = textArenaSize;
+            textArenaSize += text.length();
+        }
+
+        public void readStringTable(ByteBuffer sectionData) {
+            int count = sectionData.getInt(0);
+            var decoder = new UTF16LEDecoder(sectionData);
+
+            textOffsets = ensureCapacity(textOffsets, textCount + count + 1);
+
+            for (int i = 0; i < count; i++) {
+                int start = sectionData.getInt(4 + i * 4);
+
+                // Get next offset or section end if it's the last text
+                int end = i + 1 < count ? sectionData.getInt(8 + i * 4) : sectionData.limit();
+                int maxLength = (end - start + 1) / 2;
+
+                if (textArena.length < textArenaSize + maxLength) {
+                    textArena = Arrays.copyOf(textArena, Math.max(textArena.length * 2, textArenaSize + maxLength));
+                }
+
+                textOffsets[textCount++] = textArenaSize;
+                textArenaSize += decoder.decode(start, end, textArena, textArenaSize);
+            }
+        }
+
+        public CompactMSBT build() {
+            return new CompactMSBT(this);
+        }
+
+        private static int[] ensureCapacity(int[] array, int capacity) {
+            return array.length >= capacity ? array : Arrays.copyOf(array, Math.max(array.length * 2, capacity));
+        }
+    }
+}
@@ -2,6 +2,8 @@ package org.aphronatus.msbt;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import org.aphronatus.msbt.io.MSBTReference;
+import org.aphronatus.msbt.utils.LabelHashUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -15,11 +17,31 @@ public class MSBT {
     private List<LabelGroup> labelGroups = new ArrayList<>();
     private List<String> stringTable = new ArrayList<>();
 
+    /**
+     * Sets the LBL1 groups. Labels that are not in the bucket of their hash,
+     * e.g. in hand edited YAML, are moved to it, so a lookup only searches one
+     * bucket.
+     */
+    public void setLabelGroups(List<LabelGroup> labelGroups) {
+        this.labelGroups = LabelHashUtils.placeLabels(labelGroups);
+    }
+
     @JsonIgnore
     public boolean addGroup(LabelGroup labelGroup) {
         return labelGroups.add(labelGroup);
     }
 
+    @JsonIgnore
+    public int getLabelCount() {
+        int count = 0;
+
+        for (LabelGroup labelGroup : labelGroups) {
+            count += labelGroup.getLabels().size();
+        }
+
+        return count;
+    }
+
     @JsonIgnore
     public List<LabelGroup> getLabelsFilled() {
         List<LabelGroup> labelsFilled = new ArrayList<>();
@@ -38,4 +60,57 @@ public class MSBT {
         }
         return labelsFilled;
     }
+
+    /**
+     * Looks the label up in the LBL1 bucket of its hash, where the game,
+     * MSBTWriterFile and {@link #setLabelGroups} put it.
+     *
+     * @return the text of the label, or null if there is no such label
+     */
+    @JsonIgnore
+    public String findText(String labelName) {
+        Label label = findLabel(labelName);
+        return label == null ? null : stringTable.get(label.getTableIndex());
+    }
+
+    /**
+     * Replaces the text of the label, or adds the label to its bucket with a
+     * new string table entry if it does not exist yet.
+     */
+    @JsonIgnore
+    public void setText(String labelName, String text) {
+        Label label = findLabel(labelName);
+
+        if (label != null) {
+            stringTable.set(label.getTableIndex(), text);
+            return;
+        }
+
+        if (labelGroups.isEmpty()) {
+            labelGroups = LabelHashUtils.createGroups(MSBTReference.LABEL_HASH_BUCKETS);
+        }
+
+        label = new Label();
+        label.setName(labelName);
+        label.setTableIndex(stringTable.size());
+
+        stringTable.add(text);
+        labelGroups.get(LabelHashUtils.bucket(labelName, labelGroups.size())).add(label);
+    }
+
+    private Label findLabel(String labelName) {
+        if (labelGroups.isEmpty()) {
+            return null;
+        }
+
+        LabelGroup bucket = labelGroups.get(LabelHashUtils.bucket(labelName, labelGroups.size()));
+
+        for (Label label : bucket.getLabels()) {
+            if (label.getName().equals(labelName)) {
+                return label;
+            }
+        }
+
+        return null;
+    }
 }
@@ -1,30 +1,144 @@
 package org.aphronatus.msbt;
 
 
+import org.aphronatus.msbt.io.MSBTReference;
 import org.aphronatus.msbt.io.reader.MSBTReaderFile;
+import org.aphronatus.msbt.io.reader.MSBTReaderJSONLinesFile;
+import org.aphronatus.msbt.io.reader.MSBTReaderOptions;
+import org.aphronatus.msbt.io.reader.MSBTVisitor;
 import org.aphronatus.msbt.io.reader.MSBTReaderYAMLFile;
 import org.aphronatus.msbt.io.writer.MSBTWriterFile;
+import org.aphronatus.msbt.io.writer.MSBTWriterJSONLinesFile;
 import org.aphronatus.msbt.io.writer.MSBTWriterYAMLFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 public class MSBTUtils {
+    private static final String TEMPORARY_SUFFIX = ".tmp";
 
     public static MSBT readFromMSBTFile(File file) throws IOException {
         return MSBTReaderFile.fromFile(file);
     }
 
+    public static MSBT readFromMSBTFile(File file, MSBTReaderOptions options) throws IOException {
+        return MSBTReaderFile.fromFile(file, options);
+    }
+
+    public static MSBT readFromMSBTFileMapped(File file) throws IOException {
+        return MSBTReaderFile.fromFile(file, MSBTReaderOptions.mapped());
+    }
+
+    public static MSBT readFromMSBTBuffer(ByteBuffer buffer) throws IOException {
+        return MSBTReaderFile.fromBuffer(buffer);
+    }
+
+    public static MSBT readFromMSBTChannel(ReadableByteChannel channel) throws IOException {
+        return MSBTReaderFile.fromChannel(channel);
+    }
+
+    public static void visitMSBTFile(File file, MSBTVisitor visitor) throws IOException {
+        MSBTReaderFile.accept(file, MSBTReaderOptions.mapped(), visitor);
+    }
+
     public static MSBT readFromMSBTYAMLFile(File file) throws IOException {
         return MSBTReaderYAMLFile.fromFile(file);
     }
 
+    public static MSBT readFromMSBTJSONLinesFile(File file) throws IOException {
+        return MSBTReaderJSONLinesFile.fromFile(file);
+    }
+
+    /**
+     * Reads a .msbt, .yaml or .jsonl file according to its extension.
+     */
+    public static MSBT readFromFile(File file) throws IOException {
+        return switch (getExtension(file)) {
+            case MSBTReference.MSBT_FILE_EXTENSION -> readFromMSBTFileMapped(file);
+            case MSBTReference.MSBT_YAML_FILE_EXTENSION -> readFromMSBTYAMLFile(file);
+            case MSBTReference.MSBT_JSONL_FILE_EXTENSION -> readFromMSBTJSONLinesFile(file);
+            default -> throw new IOException("Unsupported file type: " + file.getName());
+        };
+    }
+
     public static void writeMSBTFile(MSBT msbt, File file) throws IOException {
         MSBTWriterFile.writeFile(msbt, file);
     }
 
+    public static void writeMSBT(MSBT msbt, WritableByteChannel channel) throws IOException {
+        MSBTWriterFile.write(msbt, channel);
+    }
+
+    public static void writeMSBT(MSBT msbt, OutputStream outputStream) throws IOException {
+        MSBTWriterFile.write(msbt, outputStream);
+    }
+
+    public static byte[] writeMSBTBytes(MSBT msbt) {
+        return MSBTWriterFile.toByteArray(msbt);
+    }
+
     public static void writeMSBTYAMLFile(MSBT msbt, File file) throws IOException {
         MSBTWriterYAMLFile.writeFile(msbt, file);
     }
 
+    public static void writeMSBTJSONLinesFile(MSBT msbt, File file) throws IOException {
+        MSBTWriterJSONLinesFile.writeFile(msbt, file);
+    }
+
+    /**
+     * Writes a .msbt, .yaml or .jsonl file according to its extension.
+     */
+    public static void writeFile(MSBT msbt, File file) throws IOException {
+        switch (getExtension(file)) {
+            case MSBTReference.MSBT_FILE_EXTENSION -> writeMSBTFile(msbt, file);
+            case MSBTReference.MSBT_YAML_FILE_EXTENSION -> writeMSBTYAMLFile(msbt, file);
+            case MSBTReference.MSBT_JSONL_FILE_EXTENSION -> writeMSBTJSONLinesFile(msbt, file);
+            default -> throw new IOException("Unsupported file type: " + file.getName());
+        }
+    }
+
+    /**
+     * Same as {@link #writeFile} but the file is written next to the target
+     * under a temporary name and moved over it, so readers never see a partial file.
+     */
+    public static void writeFileAtomically(MSBT msbt, File file) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), "." + file.getName() + ".", TEMPORARY_SUFFIX + getExtension(file));
+
+        try {
+            writeFile(msbt, temp.toFile());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * True for the temporary files of {@link #writeFileAtomically}, which only
+     * stay around while a file is written or after the process was killed.
+     */
+    public static boolean isTemporaryFile(File file) {
+        String name = file.getName();
+        return name.startsWith(".") && name.endsWith(TEMPORARY_SUFFIX + getExtension(file));
+    }
+
+    public static String getExtension(File file) {
+        String name = file.getName();
+        int lastIndexOf = name.lastIndexOf(".");
+
+        if (lastIndexOf == -1) {
+            return "";
+        }
+
+        return name.substring(lastIndexOf);
+    }
+
 }
@@ -3,68 +3,159 @@ package org.aphronatus.msbt;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.aphronatus.msbt.command.DiffCommand;
+import org.aphronatus.msbt.command.PackageCommand;
+import org.aphronatus.msbt.command.ServeCommand;
+import org.aphronatus.msbt.command.VerifyCommand;
+import org.aphronatus.msbt.convert.ConversionManifest;
+import org.aphronatus.msbt.convert.ConversionScheduler;
+import org.aphronatus.msbt.convert.DirectoryWatcher;
+import org.aphronatus.msbt.io.MSBTReference;
+import org.aphronatus.msbt.metrics.ConversionMetrics;
+import org.aphronatus.msbt.utils.FileScanner;
+import org.aphronatus.msbt.utils.Log;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 public class Main {
 
-    private static Executor executor;
-    private static boolean verbose = false;
+    private static String threads = null;
+    private static long maxInFlightBytes = ConversionScheduler.DEFAULT_MAX_IN_FLIGHT_BYTES;
+    private static int exitCode = 0;
+    private static String textExtension = MSBTReference.MSBT_YAML_FILE_EXTENSION;
+    private static boolean incremental = false;
+    private static boolean watch = false;
+    private static long debounceMillis = 100;
+    private static boolean stats = false;
 
     public static void main(String[] args) {
+        if (args.length > 0 && !args[0].startsWith("-")) {
+            runCommand(args[0], Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         var parser = new DefaultParser();
         var options = new Options();
 
         options.addOption("i", "input", true, "input file");
         options.addOption("o", "output", true, "output file");
-        options.addOption("p", "threads", false, "number of threads to use");
+        options.addOption("p", "threads", true, "number of threads to use, or \"virtual\" for virtual threads (Java 21+)");
+        options.addOption(null, "max-in-flight", true, "maximum MiB of input files converted at the same time (default 256)");
         options.addOption("v", "verbose", false, "verbose output");
+        options.addOption("f", "format", true, "format of the files converted from .msbt: yaml (default) or jsonl");
+        options.addOption(null, "watch", false, "after converting the input directory, keep converting the files that change");
+        options.addOption(null, "debounce", true, "milliseconds without changes before a watched batch is converted (default 100)");
+        options.addOption(null, "stats", false, "print throughput, the slowest files and the allocation per file at the end");
+        options.addOption(null, "incremental", false, "only convert files changed since the last run, tracked in " + ConversionManifest.FILE_NAME);
 
         try {
             var cmdLine = parser.parse(options, args);
 
             if (!cmdLine.hasOption("i")) {
                 System.err.println("No input file specified");
+                exitCode = 2;
                 return;
             }
 
             if (!cmdLine.hasOption("o")) {
                 System.err.println("No output file specified");
+                exitCode = 2;
                 return;
             }
 
             if (cmdLine.hasOption("p")) {
-                var threads = Integer.parseInt(cmdLine.getOptionValue("p"));
-                executor = Executors.newFixedThreadPool(threads);
+                threads = cmdLine.getOptionValue("p");
             }
-            else {
-                executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+
+            if (cmdLine.hasOption("max-in-flight")) {
+                maxInFlightBytes = Long.parseLong(cmdLine.getOptionValue("max-in-flight")) * 1024 * 1024;
             }
 
             if (cmdLine.hasOption("v")) {
-                verbose = true;
+                Log.setVerbose(true);
+            }
+
+            if (cmdLine.hasOption("incremental")) {
+                incremental = true;
+            }
+
+            if (cmdLine.hasOption("stats")) {
+                stats = true;
+            }
+
+            if (cmdLine.hasOption("watch")) {
+                watch = true;
+            }
+
+            if (cmdLine.hasOption("debounce")) {
+                debounceMillis = Long.parseLong(cmdLine.getOptionValue("debounce"));
+            }
+
+            if (cmdLine.hasOption("f")) {
+                textExtension = switch (cmdLine.getOptionValue("f")) {
+                    case "yaml" -> MSBTReference.MSBT_YAML_FILE_EXTENSION;
+                    case "jsonl" -> MSBTReference.MSBT_JSONL_FILE_EXTENSION;
+                    default -> throw new RuntimeException("Unsupported format: " + cmdLine.getOptionValue("f"));
+                };
             }
 
             var inputFile = cmdLine.getOptionValue("i");
             var outputFile = cmdLine.getOptionValue("o");
 
+            // every output written into the watched directory would be a change to convert back
+            if (watch && isSameDirectory(new File(inputFile), new File(outputFile))) {
+                System.err.println("--watch needs an output directory other than the input directory");
+                exitCode = 2;
+                return;
+            }
+
             convert(inputFile, outputFile);
         }
-        catch (ParseException | IOException e) {
-            throw new RuntimeException(e);
-        } finally {
-            if (executor instanceof ExecutorService) {
-                ((ExecutorService) executor).shutdown();
-            }
+        catch (ParseException e) {
+            System.err.println(e.getMessage());
+            exitCode = 2;
+        }
+        catch (Exception e) {
+            // System.exit in finally would otherwise hide the error behind exit code 0
+            e.printStackTrace();
+            exitCode = 1;
+        }
+        finally {
+            System.exit(exitCode);
+        }
+    }
 
-            System.exit(0);
+    /**
+     * Runs a subcommand such as {@code package}, the plain -i/-o form converts files.
+     */
+    private static void runCommand(String command, String[] args) {
+        try {
+            exitCode = switch (command) {
+                case "package" -> PackageCommand.run(args);
+                case "verify" -> VerifyCommand.run(args);
+                case "diff" -> DiffCommand.run(args);
+                case "serve" -> ServeCommand.run(args);
+                default -> {
+                    System.err.println("Unknown command: " + command);
+                    yield 2;
+                }
+            };
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        }
+        finally {
+            System.exit(exitCode);
         }
     }
 
@@ -83,6 +174,10 @@ public class Main {
 
         if (fileInput.isDirectory()) {
             convertDirectory(fileInput, fileOutput);
+
+            if (watch) {
+                watchDirectory(fileInput, fileOutput);
+            }
         }
         else {
             convertFile(fileInput, fileOutput);
@@ -90,118 +185,222 @@ public class Main {
     }
 
     private static void convertFile(File fileInput, File fileOutput) throws IOException {
-        String extensionInput = getExtension(fileInput);
-        String extensionOutput = getExtension(fileOutput);
+        String extensionInput = MSBTUtils.getExtension(fileInput);
+        String extensionOutput = MSBTUtils.getExtension(fileOutput);
 
-        if (extensionInput.equals(".msbt") && extensionOutput.equals(".yaml")) {
-            MSBT msbtOriginal = MSBTUtils.readFromMSBTFile(fileInput);
-            MSBTUtils.writeMSBTYAMLFile(msbtOriginal, fileOutput);
-        }
-        else if (extensionInput.equals(".yaml") && extensionOutput.equals(".msbt")) {
-            MSBT msbtOriginal = MSBTUtils.readFromMSBTYAMLFile(fileInput);
-            MSBTUtils.writeMSBTFile(msbtOriginal, fileOutput);
-        }
-        else {
+        boolean toMSBT = extensionOutput.equals(MSBTReference.MSBT_FILE_EXTENSION);
+        boolean fromMSBT = extensionInput.equals(MSBTReference.MSBT_FILE_EXTENSION);
+
+        if (toMSBT == fromMSBT) {
             throw new RuntimeException("Unsupported file type");
         }
+
+        MSBT msbtOriginal = MSBTUtils.readFromFile(fileInput);
+        MSBTUtils.writeFile(msbtOriginal, fileOutput);
     }
 
     private static void convertDirectory(File fileInput, File fileOutput) throws IOException {
-        List<File> inputFiles = readAllFilesSubdirectory(fileInput);
-
-        log("Found " + inputFiles.size() + " files");
-
         if (!fileOutput.exists()) {
             fileOutput.mkdirs();
         }
 
-        inputFiles.stream().map(inputFile -> CompletableFuture.runAsync(() -> {
-            try {
-                convertFile(fileInput, fileOutput, inputFile);
-            }
-            catch (IOException e) {
-                throw new RuntimeException(e);
+        ConversionManifest manifest = incremental ? ConversionManifest.load(fileOutput, textExtension) : null;
+        AtomicInteger skipped = new AtomicInteger();
+        ConversionMetrics metrics = stats ? new ConversionMetrics() : null;
+        ConversionScheduler scheduler = ConversionScheduler.create(threads, maxInFlightBytes);
+
+        // outputs written while the tree is still scanned, when the output
+        // directory is the input directory they must not be converted back
+        Set<Path> written = ConcurrentHashMap.newKeySet();
+
+        ConversionScheduler.Report report;
+
+        try {
+            report = scheduler.run(() -> scanInputFiles(fileInput, fileOutput, written, scheduler), inputFile -> {
+                ConversionMetrics.Sample sample = metrics != null ? ConversionMetrics.start() : null;
+                written.add(getOutputFile(fileInput, fileOutput, inputFile).toPath().toAbsolutePath().normalize());
+
+                if (!convertFile(fileInput, fileOutput, inputFile, manifest)) {
+                    skipped.incrementAndGet();
+                }
+                else if (metrics != null) {
+                    metrics.record(inputFile, sample);
+                }
+            });
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Conversion interrupted", e);
+        }
+        finally {
+            if (manifest != null) {
+                manifest.save();
             }
-        }, executor)).forEach(CompletableFuture::join);
+        }
 
-    }
+        Log.log("Found " + report.getSubmitted() + " files");
 
-    private static void convertFile(File fileInput, File fileOutput, File inputFile) throws IOException {
-        String extensionInput = getExtension(inputFile);
-        File outputFile = getRelativeDirectory(fileInput, fileOutput, inputFile);
+        if (manifest != null) {
+            Log.log("Skipped " + skipped.get() + " unchanged files");
+        }
 
-        if (extensionInput.equals(".msbt")) {
-            File outputFileYAML = new File(outputFile.getAbsolutePath().replace(".msbt", ".yaml"));
+        Log.log("Converted " + report.getConverted() + " of " + report.getSubmitted() + " files in "
+            + TimeUnit.NANOSECONDS.toMillis(report.getElapsedNanos()) + " ms");
 
-            if (!outputFileYAML.getParentFile().exists()) {
-                outputFileYAML.getParentFile().mkdirs();
-            }
+        if (metrics != null) {
+            metrics.printSummary(System.out, report.getElapsedNanos());
+        }
 
-            MSBT msbtOriginal = MSBTUtils.readFromMSBTFile(inputFile);
-            MSBTUtils.writeMSBTYAMLFile(msbtOriginal, outputFileYAML);
+        if (!report.isSuccessful()) {
+            System.err.println(report.getFailures().size() + " files failed to convert:");
 
-            log(inputFile.getName() + " -> " + outputFileYAML.getName());
+            for (ConversionScheduler.Failure failure : report.getFailures()) {
+                System.err.println("  " + failure.getFile() + ": " + failure.getError());
+            }
+
+            exitCode = 1;
         }
-        else if (extensionInput.equals(".yaml")) {
-            File outputFileMSBT = new File(outputFile.getAbsolutePath().replace(".yaml", ".msbt"));
+    }
 
-            if (!outputFileMSBT.getParentFile().exists()) {
-                outputFileMSBT.getParentFile().mkdirs();
+    /**
+     * Submits the files of the input directory to convert as they are found.
+     * The output directory is skipped when it is inside the input directory,
+     * and so are temporary files of interrupted writes and the outputs this
+     * run already wrote.
+     */
+    private static void scanInputFiles(File fileInput, File fileOutput, Set<Path> written, ConversionScheduler scheduler) throws IOException {
+        FileScanner.scan(fileInput.toPath(), fileOutput.toPath(), (path, size) -> {
+            if (!MSBTUtils.isTemporaryFile(path.toFile()) && !written.contains(path.toAbsolutePath().normalize())) {
+                scheduler.submit(path.toFile(), size);
             }
+        }, MSBTReference.MSBT_FILE_EXTENSION, MSBTReference.MSBT_YAML_FILE_EXTENSION, MSBTReference.MSBT_JSONL_FILE_EXTENSION);
+    }
 
-            MSBT msbtOriginal = MSBTUtils.readFromMSBTYAMLFile(inputFile);
-            MSBTUtils.writeMSBTFile(msbtOriginal, outputFileMSBT);
+    private static boolean isSameDirectory(File fileInput, File fileOutput) {
+        return fileInput.isDirectory() && fileInput.toPath().toAbsolutePath().normalize().equals(fileOutput.toPath().toAbsolutePath().normalize());
+    }
 
-            log(inputFile.getName() + " -> " + outputFileMSBT.getName());
-        }
-        else {
-            throw new RuntimeException("Unsupported file type");
+    /**
+     * True for paths written by the conversion itself: files in an output
+     * directory inside the input directory and temporary files.
+     */
+    private static boolean isOutputPath(File fileInput, File fileOutput, Path path) {
+        // watch mode never has the input directory as output, see isSameDirectory
+        if (path.toAbsolutePath().normalize().startsWith(fileOutput.toPath().toAbsolutePath().normalize())) {
+            return true;
         }
-    }
 
-    private static File getRelativeDirectory(File inputDirectory, File outputDirectory, File inputFile) {
-        String inputDirectoryPath = inputDirectory.getAbsolutePath();
-        String inputFileDirectory = inputFile.getAbsolutePath();
+        return MSBTUtils.isTemporaryFile(path.toFile());
+    }
 
-        // exclude inputDirectoryPath from inputFileDirectory
-        String relativePath = inputFileDirectory.substring(inputDirectoryPath.length());
+    /**
+     * Converts the files of the input directory again whenever they change, until the process is stopped.
+     * Outputs of deleted files are deleted too.
+     */
+    private static void watchDirectory(File fileInput, File fileOutput) throws IOException {
+        System.out.println("Watching " + fileInput + " for changes");
 
-        return new File(outputDirectory, relativePath);
+        try (var watcher = new DirectoryWatcher(fileInput.toPath(), debounceMillis,
+            MSBTReference.MSBT_FILE_EXTENSION, MSBTReference.MSBT_YAML_FILE_EXTENSION, MSBTReference.MSBT_JSONL_FILE_EXTENSION)) {
+            watcher.run((changed, deleted) -> convertChanges(fileInput, fileOutput, changed, deleted));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    private static List<File> readAllFilesSubdirectory(File directory) {
-        List<File> filesResult = new ArrayList<>();
-        File[] files = directory.listFiles((dir, name) -> name.endsWith(".msbt") || name.endsWith(".yaml") || new File(dir, name).isDirectory());
+    private static void convertChanges(File fileInput, File fileOutput, Set<Path> changed, Set<Path> deleted) {
+        long start = System.nanoTime();
+        int converted = 0;
 
-        if (files == null) {
-            return filesResult;
+        changed = changed.stream().filter(path -> !isOutputPath(fileInput, fileOutput, path)).collect(Collectors.toSet());
+        deleted = deleted.stream().filter(path -> !isOutputPath(fileInput, fileOutput, path)).collect(Collectors.toSet());
+
+        if (changed.isEmpty() && deleted.isEmpty()) {
+            return;
         }
 
-        for (File file : files) {
-            if (file.isDirectory()) {
-                filesResult.addAll(readAllFilesSubdirectory(file));
+        for (Path path : changed) {
+            try {
+                convertFile(fileInput, fileOutput, path.toFile(), null);
+                converted++;
             }
-            else {
-                filesResult.add(file);
+            catch (Exception | InternalError e) {
+                System.err.println(path + ": " + e);
             }
         }
 
-        return filesResult;
+        for (Path path : deleted) {
+            try {
+                File outputFile = getOutputFile(fileInput, fileOutput, path.toFile());
+
+                if (Files.deleteIfExists(outputFile.toPath())) {
+                    Log.log(path.getFileName() + " deleted, removed " + outputFile.getName());
+                }
+            }
+            catch (IOException e) {
+                System.err.println(path + ": " + e);
+            }
+        }
+
+        System.out.println("Converted " + converted + " of " + changed.size() + " changed files in "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
     }
 
-    private static String getExtension(File file) {
-        String name = file.getName();
-        int lastIndexOf = name.lastIndexOf(".");
+    /**
+     * Converts one file of the input directory. Returns false when the manifest
+     * shows the output is already up to date and nothing was written.
+     */
+    private static boolean convertFile(File fileInput, File fileOutput, File inputFile, ConversionManifest manifest) throws IOException {
+        File outputFileConverted = getOutputFile(fileInput, fileOutput, inputFile);
+
+        String relativePath = fileInput.toPath().relativize(inputFile.toPath()).toString().replace(File.separatorChar, '/');
+
+        if (manifest != null && manifest.isUpToDate(relativePath, inputFile, outputFileConverted)) {
+            return false;
+        }
+
+        if (!outputFileConverted.getParentFile().exists()) {
+            outputFileConverted.getParentFile().mkdirs();
+        }
+
+        ConversionManifest.Entry input = manifest != null ? ConversionManifest.hashInput(inputFile) : null;
 
-        if (lastIndexOf == -1) {
-            return "";
+        MSBT msbtOriginal = MSBTUtils.readFromFile(inputFile);
+        MSBTUtils.writeFileAtomically(msbtOriginal, outputFileConverted);
+
+        if (manifest != null) {
+            manifest.record(relativePath, input, outputFileConverted);
         }
 
-        return name.substring(lastIndexOf);
+        Log.log(inputFile.getName() + " -> " + outputFileConverted.getName());
+        return true;
     }
 
-    public static void log(String str) {
-        if (verbose)
-            System.out.println(str);
+    /**
+     * Output of a file of the input directory: same relative path, extension of the target format.
+     */
+    private static File getOutputFile(File fileInput, File fileOutput, File inputFile) {
+        String extensionInput = MSBTUtils.getExtension(inputFile);
+        File outputFile = getRelativeDirectory(fileInput, fileOutput, inputFile);
+
+        String extensionOutput = switch (extensionInput) {
+            case MSBTReference.MSBT_FILE_EXTENSION -> textExtension;
+            case MSBTReference.MSBT_YAML_FILE_EXTENSION, MSBTReference.MSBT_JSONL_FILE_EXTENSION -> MSBTReference.MSBT_FILE_EXTENSION;
+            default -> throw new RuntimeException("Unsupported file type");
+        };
+
+        String outputPath = outputFile.getAbsolutePath();
+        return new File(outputPath.substring(0, outputPath.length() - extensionInput.length()) + extensionOutput);
+    }
+
+    private static File getRelativeDirectory(File inputDirectory, File outputDirectory, File inputFile) {
+        String inputDirectoryPath = inputDirectory.getAbsolutePath();
+        String inputFileDirectory = inputFile.getAbsolutePath();
+
+        // exclude inputDirectoryPath from inputFileDirectory
+        String relativePath = inputFileDirectory.substring(inputDirectoryPath.length());
+
+        return new File(outputDirectory, relativePath);
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package org.aphronatus.msbt.command;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.aphronatus.msbt.convert.ConversionScheduler;
+import org.aphronatus.msbt.diff.MSBTDiff;
+import org.aphronatus.msbt.utils.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Prints the changes between two directories of MSBT, YAML or JSON Lines
+ * files as JSON Lines, see {@link MSBTDiff}.
+ */
+public class DiffCommand {
+
+    public static int run(String[] args) throws IOException {
+        var options = new Options();
+
+        options.addOption("a", "old", true, "directory with the old files");
+        options.addOption("b", "new", true, "directory with the new files");
+        options.addOption("o", "output", true, "file to write the changes to (default standard output)");
+        options.addOption("p", "threads", true, "number of threads to use, or \"virtual\" for virtual threads (Java 21+)");
+        options.addOption("v", "verbose", false, "verbose output");
+
+        CommandLine cmdLine;
+
+        try {
+            cmdLine = new DefaultParser().parse(options, args);
+        }
+        catch (ParseException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+
+        if (!cmdLine.hasOption("a") || !cmdLine.hasOption("b")) {
+            System.err.println("Usage: diff -a <old directory> -b <new directory> [-o changes.jsonl]");
+            return 2;
+        }
+
+        // the changes may go to standard output, keep it clean for them
+        Log.setStream(System.err);
+        Log.setVerbose(cmdLine.hasOption("v"));
+
+        MSBTDiff.Result result = MSBTDiff.diff(new File(cmdLine.getOptionValue("a")), new File(cmdLine.getOptionValue("b")), cmdLine.getOptionValue("p"));
+
+        if (cmdLine.hasOption("o")) {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(new File(cmdLine.getOptionValue("o")).toPath()), 64 * 1024)) {
+                MSBTDiff.write(result.getChanges(), outputStream);
+            }
+        }
+        else {
+            MSBTDiff.write(result.getChanges(), System.out);
+        }
+
+        Log.log(result.getChanges().size() + " changes, " + result.getSkipped() + " identical files skipped");
+
+        for (ConversionScheduler.Failure failure : result.getFailures()) {
+            System.err.println(failure.getFile() + ": " + failure.getError());
+        }
+
+        return result.getFailures().isEmpty() ? 0 : 1;
+    }
+}
@@ -0,0 +1,225 @@
+package org.aphronatus.msbt.command;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.MSBTUtils;
+import org.aphronatus.msbt.convert.ConversionScheduler;
+import org.aphronatus.msbt.io.MSBTReference;
+import org.aphronatus.msbt.sarc.SARCArchive;
+import org.aphronatus.msbt.sarc.SARCWriter;
+import org.aphronatus.msbt.utils.FileScanner;
+import org.aphronatus.msbt.utils.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds the release zip of the mod straight from a tree of YAML (or JSON
+ * Lines / MSBT) files:
+ *
+ * <pre>
+ * &lt;name&gt;/&lt;template files&gt;
+ * &lt;name&gt;/romfs/Mals/EUfr.Product.100.sarc.zs
+ * </pre>
+ *
+ * The files are decoded in parallel into memory, packed into a SARC archive
+ * and compressed with zstd while the archive is written into the zip entry.
+ * No MSBT or SARC file is written to disk.
+ */
+public class PackageCommand {
+    public static final String DEFAULT_MOD_NAME = "PT-BR Tradu\u00e7\u00e3o";
+    public static final String DEFAULT_ARCHIVE_PATH = "Mals/EUfr.Product.100.sarc.zs";
+    public static final int DEFAULT_ZSTD_LEVEL = 19;
+
+    private static final String ROMFS_DIRECTORY = "romfs";
+
+    public static int run(String[] args) throws IOException {
+        var options = new Options();
+
+        options.addOption("i", "input", true, "directory with the .yaml, .jsonl or .msbt files");
+        options.addOption("o", "output", true, "zip file to create");
+        options.addOption("n", "name", true, "name of the mod directory in the zip (default \"" + DEFAULT_MOD_NAME + "\")");
+        options.addOption("a", "archive", true, "path of the archive inside romfs (default " + DEFAULT_ARCHIVE_PATH + ")");
+        options.addOption("t", "template", true, "directory whose files are copied into the mod directory, e.g. config.yaml");
+        options.addOption("l", "level", true, "zstd compression level (default " + DEFAULT_ZSTD_LEVEL + ")");
+        options.addOption(null, "zstd-dictionary", true, "zstd dictionary used to compress the archive");
+        options.addOption("p", "threads", true, "number of threads to use, or \"virtual\" for virtual threads (Java 21+)");
+        options.addOption("v", "verbose", false, "verbose output");
+
+        CommandLine cmdLine;
+
+        try {
+            cmdLine = new DefaultParser().parse(options, args);
+        }
+        catch (ParseException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+
+        if (!cmdLine.hasOption("i") || !cmdLine.hasOption("o")) {
+            System.err.println("Usage: package -i <input directory> -o <output zip>");
+            return 2;
+        }
+
+        Log.setVerbose(cmdLine.hasOption("v"));
+
+        File input = new File(cmdLine.getOptionValue("i"));
+        File output = new File(cmdLine.getOptionValue("o"));
+        String name = cmdLine.getOptionValue("n", DEFAULT_MOD_NAME);
+        String archivePath = cmdLine.getOptionValue("a", DEFAULT_ARCHIVE_PATH);
+        int level = Integer.parseInt(cmdLine.getOptionValue("l", String.valueOf(DEFAULT_ZSTD_LEVEL)));
+        byte[] dictionary = cmdLine.hasOption("zstd-dictionary")
+            ? Files.readAllBytes(Path.of(cmdLine.getOptionValue("zstd-dictionary")))
+            : null;
+
+        long start = System.nanoTime();
+        SARCArchive archive = readArchive(input, cmdLine.getOptionValue("p"));
+
+        if (archive == null) {
+            return 1;
+        }
+
+        Log.log("Read " + archive.size() + " files in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+
+        File template = cmdLine.hasOption("t") ? new File(cmdLine.getOptionValue("t")) : null;
+        writeZip(output, name, template, archivePath, archive, level, dictionary);
+
+        Log.log("Wrote " + output + " (" + output.length() + " bytes) in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return 0;
+    }
+
+    /**
+     * Decodes every file of the directory in parallel into an archive whose
+     * entries are named by their relative path with the .msbt extension.
+     * Returns null after reporting the files that could not be read.
+     */
+    public static SARCArchive readArchive(File input, String threads) throws IOException {
+        Path root = input.toPath();
+        Map<String, MSBT> files = new ConcurrentHashMap<>();
+        ConversionScheduler scheduler = ConversionScheduler.create(threads, ConversionScheduler.DEFAULT_MAX_IN_FLIGHT_BYTES);
+
+        ConversionScheduler.Report report;
+
+        try {
+            report = scheduler.run(
+                () -> FileScanner.scan(root, (path, size) -> scheduler.submit(path.toFile(), size),
+                    MSBTReference.MSBT_FILE_EXTENSION, MSBTReference.MSBT_YAML_FILE_EXTENSION, MSBTReference.MSBT_JSONL_FILE_EXTENSION),
+                file -> files.put(getEntryName(root, file), MSBTUtils.readFromFile(file)));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Packaging interrupted", e);
+        }
+
+        if (!report.isSuccessful()) {
+            System.err.println(report.getFailures().size() + " files could not be read:");
+
+            for (ConversionScheduler.Failure failure : report.getFailures()) {
+                System.err.println("  " + failure.getFile() + ": " + failure.getError());
+            }
+
+            return null;
+        }
+
+        // sorted so the archive does not depend on the order the workers finished
+        SARCArchive archive = new SARCArchive();
+        new TreeMap<>(files).forEach(archive::putMSBT);
+
+        return archive;
+    }
+
+    private static String getEntryName(Path root, File file) {
+        String relativePath = root.relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+        String extension = MSBTUtils.getExtension(file);
+
+        return relativePath.substring(0, relativePath.length() - extension.length()) + MSBTReference.MSBT_FILE_EXTENSION;
+    }
+
+    private static void writeZip(File output, String name, File template, String archivePath, SARCArchive archive, int level, byte[] dictionary) throws IOException {
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+
+        try (var zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(output.toPath()), 64 * 1024))) {
+            String modDirectory = name + "/";
+            zip.putNextEntry(new ZipEntry(modDirectory));
+            zip.closeEntry();
+
+            if (template != null) {
+                for (FileScanner.ScannedFile file : FileScanner.list(template.toPath())) {
+                    String relativePath = template.toPath().relativize(file.getPath()).toString().replace(File.separatorChar, '/');
+
+                    zip.putNextEntry(new ZipEntry(modDirectory + relativePath));
+                    Files.copy(file.getPath(), zip);
+                    zip.closeEntry();
+                }
+            }
+
+            // directory entries on the way to the archive
+            String directory = modDirectory + ROMFS_DIRECTORY + "/";
+            zip.putNextEntry(new ZipEntry(directory));
+            zip.closeEntry();
+
+            String[] parts = archivePath.split("/");
+
+            for (int i = 0; i < parts.length - 1; i++) {
+                directory += parts[i] + "/";
+                zip.putNextEntry(new ZipEntry(directory));
+                zip.closeEntry();
+            }
+
+            // zstd output does not deflate any further
+            zip.setLevel(Deflater.NO_COMPRESSION);
+            zip.putNextEntry(new ZipEntry(modDirectory + ROMFS_DIRECTORY + "/" + archivePath));
+
+            try (var zstd = new ZstdOutputStream(new NonClosingOutputStream(zip))) {
+                zstd.setLevel(level);
+                zstd.setWorkers(Runtime.getRuntime().availableProcessors());
+
+                if (dictionary != null) {
+                    zstd.setDict(dictionary);
+                }
+
+                SARCWriter.write(archive, zstd);
+            }
+
+            zip.closeEntry();
+            zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        }
+    }
+
+    /**
+     * Lets the zstd stream end its frame on close without closing the zip.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
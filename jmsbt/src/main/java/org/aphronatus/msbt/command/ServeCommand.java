@@ -0,0 +1,314 @@
+package org.aphronatus.msbt.command;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.MSBTUtils;
+import org.aphronatus.msbt.utils.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+
+/**
+ * Long running conversion server, so build scripts pay the JVM startup and
+ * warm-up once instead of per file. Jobs arrive as one JSON object per line on
+ * standard input, or on each connection to a Unix domain socket:
+ *
+ * <pre>
+ * {"id":1,"op":"convert","input":"Staff.yaml","output":"Staff.msbt"}
+ * {"id":2,"op":"read","input":"Staff.msbt"}
+ * {"id":3,"op":"write","output":"Staff.msbt","msbt":{...}}
+ * {"id":4,"op":"verify","input":"Staff.msbt","format":"jsonl"}
+ * {"op":"shutdown"}
+ * </pre>
+ *
+ * Jobs run in parallel; every job is answered with one line carrying its id,
+ * in the order the jobs finish:
+ *
+ * <pre>
+ * {"id":1,"ok":true,"millis":3}
+ * {"id":2,"ok":true,"millis":1,"msbt":{...}}
+ * {"id":4,"ok":false,"millis":2,"error":"differs at 0x1483F in TXT2 ..."}
+ * </pre>
+ *
+ * A shutdown job ends its own connection and stops the server from accepting
+ * new ones. Other open connections are still served, and the server exits
+ * once their clients have closed them. Diagnostics go to standard error,
+ * standard output only carries responses.
+ */
+public class ServeCommand {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ExecutorService executor;
+    // open socket connections, waited for before the server exits
+    private final Phaser connections = new Phaser(1);
+    private volatile boolean running = true;
+    private ServerSocketChannel serverChannel;
+
+    private ServeCommand(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public static int run(String[] args) throws IOException {
+        var options = new Options();
+
+        options.addOption("s", "socket", true, "path of the Unix domain socket to listen on (default standard input/output)");
+        options.addOption("p", "threads", true, "number of jobs run at the same time (default number of processors)");
+        options.addOption("v", "verbose", false, "verbose output");
+
+        CommandLine cmdLine;
+
+        try {
+            cmdLine = new DefaultParser().parse(options, args);
+        }
+        catch (ParseException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+
+        Log.setStream(System.err);
+        Log.setVerbose(cmdLine.hasOption("v"));
+
+        int threads = cmdLine.hasOption("p")
+            ? Integer.parseInt(cmdLine.getOptionValue("p"))
+            : Runtime.getRuntime().availableProcessors();
+
+        ServeCommand server = new ServeCommand(Executors.newFixedThreadPool(threads));
+
+        try {
+            if (cmdLine.hasOption("s")) {
+                server.serveSocket(Path.of(cmdLine.getOptionValue("s")));
+            }
+            else {
+                server.serve(System.in, System.out);
+            }
+        }
+        finally {
+            server.executor.shutdown();
+        }
+
+        return 0;
+    }
+
+    private void serveSocket(Path socketPath) throws IOException {
+        Files.deleteIfExists(socketPath);
+
+        try (ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.bind(UnixDomainSocketAddress.of(socketPath));
+            serverChannel = channel;
+            System.err.println("Listening on " + socketPath);
+
+            while (running) {
+                SocketChannel client;
+
+                try {
+                    client = channel.accept();
+                }
+                catch (IOException e) {
+                    // closed by a shutdown job
+                    break;
+                }
+
+                connections.register();
+
+                Thread thread = new Thread(() -> {
+                    try (client) {
+                        serve(Channels.newInputStream(client), channelOutputStream(client));
+                    }
+                    catch (IOException e) {
+                        Log.log("Connection closed: " + e.getMessage());
+                    }
+                    finally {
+                        connections.arriveAndDeregister();
+                    }
+                }, "serve-connection");
+
+                thread.setDaemon(true);
+                thread.start();
+            }
+
+            connections.arriveAndAwaitAdvance();
+        }
+        finally {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    /**
+     * Reads jobs until the end of the input or a shutdown job, then waits for
+     * the jobs still running before returning.
+     */
+    private void serve(InputStream inputStream, OutputStream outputStream) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        var writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        var pending = new Phaser(1);
+
+        try {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                JsonNode request;
+
+                try {
+                    request = MAPPER.readTree(line);
+                }
+                catch (JsonProcessingException e) {
+                    ObjectNode response = MAPPER.createObjectNode();
+                    response.put("ok", false);
+                    response.put("error", "Invalid request: " + e.getOriginalMessage());
+                    respond(writer, response);
+                    continue;
+                }
+
+                if ("shutdown".equals(request.path("op").asText())) {
+                    shutdown();
+                    break;
+                }
+
+                pending.register();
+                executor.execute(() -> {
+                    try {
+                        respond(writer, execute(request));
+                    }
+                    catch (IOException e) {
+                        Log.log("Could not send response: " + e.getMessage());
+                    }
+                    finally {
+                        pending.arriveAndDeregister();
+                    }
+                });
+            }
+        }
+        finally {
+            pending.arriveAndAwaitAdvance();
+        }
+    }
+
+    /**
+     * Writes to the socket channel directly: the streams of {@link Channels}
+     * hold the channel's blocking lock while a read waits for the next job, so
+     * responses written through them would wait for it too.
+     */
+    private static OutputStream channelOutputStream(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        };
+    }
+
+    private ObjectNode execute(JsonNode request) {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.set("id", request.get("id"));
+
+        long start = System.nanoTime();
+        String op = request.path("op").asText();
+
+        try {
+            switch (op) {
+                case "convert" -> {
+                    MSBT msbt = MSBTUtils.readFromFile(file(request, "input"));
+                    MSBTUtils.writeFileAtomically(msbt, file(request, "output"));
+                }
+                case "read" -> response.set("msbt", MAPPER.valueToTree(MSBTUtils.readFromFile(file(request, "input"))));
+                case "write" -> {
+                    if (!request.has("msbt")) {
+                        throw new IllegalArgumentException("Missing field msbt");
+                    }
+
+                    MSBT msbt = MAPPER.treeToValue(request.get("msbt"), MSBT.class);
+                    MSBTUtils.writeFileAtomically(msbt, file(request, "output"));
+                }
+                case "verify" -> {
+                    String mismatch;
+
+                    try (RandomAccessFile file = new RandomAccessFile(file(request, "input"), "r")) {
+                        FileChannel channel = file.getChannel();
+                        mismatch = VerifyCommand.verify(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), request.path("format").asText("yaml"));
+                    }
+
+                    if (mismatch != null) {
+                        throw new IOException(mismatch);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown op: " + op);
+            }
+
+            response.put("ok", true);
+        }
+        catch (Exception | InternalError e) {
+            response.put("ok", false);
+            response.put("error", e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+
+        response.put("millis", (System.nanoTime() - start) / 1_000_000);
+        return response;
+    }
+
+    private static File file(JsonNode request, String field) {
+        if (!request.hasNonNull(field)) {
+            throw new IllegalArgumentException("Missing field " + field);
+        }
+
+        return new File(request.get(field).asText());
+    }
+
+    private static void respond(Writer writer, ObjectNode response) throws IOException {
+        String line = MAPPER.writeValueAsString(response);
+
+        synchronized (writer) {
+            writer.write(line);
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    private void shutdown() throws IOException {
+        running = false;
+
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.aphronatus.msbt.command;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.convert.ConversionScheduler;
+import org.aphronatus.msbt.io.MSBTReference;
+import org.aphronatus.msbt.io.reader.MSBTReaderFile;
+import org.aphronatus.msbt.io.reader.MSBTReaderJSONLinesFile;
+import org.aphronatus.msbt.io.reader.MSBTReaderYAMLFile;
+import org.aphronatus.msbt.io.writer.MSBTWriterFile;
+import org.aphronatus.msbt.io.writer.MSBTWriterJSONLinesFile;
+import org.aphronatus.msbt.io.writer.MSBTWriterYAMLFile;
+import org.aphronatus.msbt.utils.FileScanner;
+import org.aphronatus.msbt.utils.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that every .msbt file of a directory survives MSBT -> YAML (or JSON
+ * Lines) -> MSBT byte for byte. Everything happens in memory and in parallel;
+ * for a file that differs the first differing offset and the section it falls
+ * in are reported.
+ */
+public class VerifyCommand {
+
+    public static int run(String[] args) throws IOException {
+        var options = new Options();
+
+        options.addOption("i", "input", true, "directory with the .msbt files");
+        options.addOption("f", "format", true, "text format of the round trip: yaml (default) or jsonl");
+        options.addOption("p", "threads", true, "number of threads to use, or \"virtual\" for virtual threads (Java 21+)");
+        options.addOption("v", "verbose", false, "verbose output");
+
+        CommandLine cmdLine;
+
+        try {
+            cmdLine = new DefaultParser().parse(options, args);
+        }
+        catch (ParseException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+
+        if (!cmdLine.hasOption("i")) {
+            System.err.println("Usage: verify -i <input directory> [-f yaml|jsonl]");
+            return 2;
+        }
+
+        Log.setVerbose(cmdLine.hasOption("v"));
+
+        String format = cmdLine.getOptionValue("f", "yaml");
+
+        if (!format.equals("yaml") && !format.equals("jsonl")) {
+            System.err.println("Unsupported format: " + format);
+            return 2;
+        }
+
+        File input = new File(cmdLine.getOptionValue("i"));
+        ConversionScheduler scheduler = ConversionScheduler.create(cmdLine.getOptionValue("p"), ConversionScheduler.DEFAULT_MAX_IN_FLIGHT_BYTES);
+
+        ConversionScheduler.Report report;
+
+        try {
+            report = scheduler.run(
+                () -> FileScanner.scan(input.toPath(), (path, size) -> scheduler.submit(path.toFile(), size), MSBTReference.MSBT_FILE_EXTENSION),
+                file -> {
+                    String mismatch = verify(map(file), format);
+
+                    if (mismatch != null) {
+                        throw new IOException(mismatch);
+                    }
+
+                    Log.log(file + " OK");
+                });
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Verification interrupted", e);
+        }
+
+        System.out.println("Verified " + report.getSubmitted() + " files in "
+            + TimeUnit.NANOSECONDS.toMillis(report.getElapsedNanos()) + " ms, "
+            + report.getFailures().size() + " failed");
+
+        for (ConversionScheduler.Failure failure : report.getFailures()) {
+            System.err.println(failure.getFile() + ": " + failure.getError().getMessage());
+        }
+
+        return report.isSuccessful() ? 0 : 1;
+    }
+
+    /**
+     * Round trips the MSBT in the buffer through the text format.
+     *
+     * @return null if the bytes written back are identical, otherwise where they differ
+     */
+    public static String verify(ByteBuffer original, String format) throws IOException {
+        MSBT msbt = MSBTReaderFile.fromBuffer(original);
+        MSBT roundTrip;
+
+        var text = new ByteArrayOutputStream(original.remaining() * 2);
+
+        if (format.equals("jsonl")) {
+            MSBTWriterJSONLinesFile.write(msbt, text);
+            roundTrip = MSBTReaderJSONLinesFile.read(new ByteArrayInputStream(text.toByteArray()));
+        }
+        else {
+            MSBTWriterYAMLFile.write(msbt, text);
+            roundTrip = MSBTReaderYAMLFile.read(new ByteArrayInputStream(text.toByteArray()));
+        }
+
+        ByteBuffer written = ByteBuffer.wrap(MSBTWriterFile.toByteArray(roundTrip));
+        int offset = original.mismatch(written);
+
+        if (offset < 0) {
+            return null;
+        }
+
+        return String.format("differs at 0x%X in %s (original %d bytes, written %d bytes)",
+            offset, findSection(original, offset), original.remaining(), written.remaining());
+    }
+
+    /**
+     * Name of the section containing the offset, by walking the section headers of the original file.
+     */
+    private static String findSection(ByteBuffer buffer, int offset) {
+        if (offset < MSBTReference.HEADER_SIZE) {
+            return "header";
+        }
+
+        ByteBuffer file = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int sectionCount = Short.toUnsignedInt(file.getShort(0x0E));
+        int position = MSBTReference.HEADER_SIZE;
+
+        for (int i = 0; i < sectionCount && position + MSBTReference.SECTION_HEADER_SIZE <= file.limit(); i++) {
+            byte[] name = new byte[4];
+            file.get(position, name);
+
+            int end = position + MSBTReference.SECTION_HEADER_SIZE + file.getInt(position + 4);
+            end = (end + MSBTReference.SECTION_ALIGNMENT - 1) & -MSBTReference.SECTION_ALIGNMENT;
+
+            if (offset < end) {
+                return new String(name, StandardCharsets.US_ASCII);
+            }
+
+            position = end;
+        }
+
+        return "end of file";
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
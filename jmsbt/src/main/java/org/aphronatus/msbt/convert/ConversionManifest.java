@@ -0,0 +1,259 @@
+package org.aphronatus.msbt.convert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.Data;
+import org.aphronatus.msbt.utils.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Manifest of a directory conversion, stored in the output directory. For each
+ * input (relative path) it records the SHA-256 of its content and the size and
+ * modification time of the output written from it.
+ *
+ * A file is up to date when the tool version and output format are the same as
+ * in the previous run, its content hash did not change and its output is still
+ * the one that was written. The input size and modification time are kept too,
+ * so an untouched input is not hashed again.
+ */
+public class ConversionManifest {
+    public static final String FILE_NAME = ".jmsbt-manifest.json";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final int HASH_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static volatile String toolVersionCache;
+
+    private final File file;
+    private final String toolVersion;
+    private final String format;
+
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    @Data
+    public static class Entry {
+        private String inputHash;
+        private long inputSize;
+        private long inputModified;
+        private String output;
+        private long outputSize;
+        private long outputModified;
+    }
+
+    @Data
+    public static class Content {
+        private String toolVersion;
+        private String format;
+        private Map<String, Entry> files = new TreeMap<>();
+    }
+
+    private ConversionManifest(File file, String toolVersion, String format, Map<String, Entry> previous) {
+        this.file = file;
+        this.toolVersion = toolVersion;
+        this.format = format;
+        this.previous = previous;
+    }
+
+    /**
+     * Loads the manifest of the output directory. A missing or unreadable
+     * manifest, or one written by another tool version or for another output
+     * format, starts empty so every file is converted again.
+     */
+    public static ConversionManifest load(File outputDirectory, String format) {
+        File file = new File(outputDirectory, FILE_NAME);
+        String toolVersion = getToolVersion();
+        Map<String, Entry> previous = Map.of();
+
+        if (file.isFile()) {
+            try {
+                Content content = MAPPER.readValue(file, Content.class);
+
+                if (toolVersion.equals(content.getToolVersion()) && format.equals(content.getFormat())) {
+                    previous = content.getFiles();
+                }
+            }
+            catch (IOException e) {
+                Log.log("Ignoring unreadable manifest " + file + ": " + e.getMessage());
+            }
+        }
+
+        return new ConversionManifest(file, toolVersion, format, previous);
+    }
+
+    /**
+     * Version of the running tool: the version of the jar manifest ("dev"
+     * outside a jar) followed by the SHA-256 of the jar, or of the class files
+     * when run from a classes directory. Two builds of the same version are
+     * different tools, so a rebuild converts every file again.
+     */
+    public static String getToolVersion() {
+        String version = toolVersionCache;
+
+        if (version == null) {
+            String implementationVersion = ConversionManifest.class.getPackage().getImplementationVersion();
+            version = (implementationVersion != null ? implementationVersion : "dev") + "+" + hashCodeSource();
+            toolVersionCache = version;
+        }
+
+        return version;
+    }
+
+    private static String hashCodeSource() {
+        try {
+            CodeSource codeSource = ConversionManifest.class.getProtectionDomain().getCodeSource();
+            Path location = Path.of(codeSource.getLocation().toURI());
+
+            if (Files.isRegularFile(location)) {
+                return sha256(location.toFile());
+            }
+
+            MessageDigest digest = newDigest();
+
+            try (Stream<Path> paths = Files.walk(location)) {
+                for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile).sorted()::iterator) {
+                    digest.update(location.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update(Files.readAllBytes(path));
+                }
+            }
+
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        catch (Exception e) {
+            // no code source to hash, every run is a new tool
+            Log.log("Unable to hash the tool build, incremental conversion is disabled: " + e.getMessage());
+            return "unknown-" + System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns true and keeps the previous entry when the input has not changed
+     * since its output was written. Otherwise returns false; the caller
+     * hashes the input with {@link #hashInput}, converts it and calls
+     * {@link #record}.
+     */
+    public boolean isUpToDate(String relativePath, File input, File output) throws IOException {
+        Entry entry = previous.get(relativePath);
+
+        if (entry == null || !output.getName().equals(entry.getOutput())) {
+            return false;
+        }
+
+        if (output.length() != entry.getOutputSize() || output.lastModified() != entry.getOutputModified()) {
+            return false;
+        }
+
+        if (input.length() != entry.getInputSize()) {
+            return false;
+        }
+
+        if (input.lastModified() != entry.getInputModified()) {
+            String hash = sha256(input);
+
+            if (!hash.equals(entry.getInputHash())) {
+                return false;
+            }
+
+            // same content with a new timestamp, e.g. after a checkout
+            entry = copy(entry);
+            entry.setInputModified(input.lastModified());
+        }
+
+        current.put(relativePath, entry);
+        return true;
+    }
+
+    /**
+     * Hash, size and modification time of an input, taken before it is read so
+     * a change made while it is converted is seen in the next run.
+     */
+    public static Entry hashInput(File input) throws IOException {
+        Entry entry = new Entry();
+        entry.setInputSize(input.length());
+        entry.setInputModified(input.lastModified());
+        entry.setInputHash(sha256(input));
+        return entry;
+    }
+
+    /**
+     * Records an input, as returned by {@link #hashInput} before the
+     * conversion, and the output that was just written from it.
+     */
+    public void record(String relativePath, Entry input, File output) {
+        Entry entry = copy(input);
+        entry.setOutput(output.getName());
+        entry.setOutputSize(output.length());
+        entry.setOutputModified(output.lastModified());
+
+        current.put(relativePath, entry);
+    }
+
+    /**
+     * Writes the manifest with the entries checked or recorded in this run.
+     * Inputs that no longer exist or failed to convert are dropped. The file is
+     * written to a temporary file first and moved over the old one.
+     */
+    public void save() throws IOException {
+        Content content = new Content();
+        content.setToolVersion(toolVersion);
+        content.setFormat(format);
+        content.getFiles().putAll(current);
+
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(FILE_NAME + ".tmp");
+
+        MAPPER.writeValue(temp.toFile(), content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static String sha256(File file) throws IOException {
+        MessageDigest digest = newDigest();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            for (long position = 0; position < size; position += HASH_CHUNK_SIZE) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(HASH_CHUNK_SIZE, size - position));
+                digest.update(buffer);
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Entry copy(Entry entry) {
+        Entry copy = new Entry();
+        copy.setInputHash(entry.getInputHash());
+        copy.setInputSize(entry.getInputSize());
+        copy.setInputModified(entry.getInputModified());
+        copy.setOutput(entry.getOutput());
+        copy.setOutputSize(entry.getOutputSize());
+        copy.setOutputModified(entry.getOutputModified());
+        return copy;
+    }
+}
@@ -0,0 +1,249 @@
+package org.aphronatus.msbt.convert;
+
+import lombok.Value;
+import org.aphronatus.msbt.utils.Log;
+import org.aphronatus.msbt.utils.ThrowingInterfaces.ThrowingConsumer;
+import org.aphronatus.msbt.utils.ThrowingInterfaces.ThrowingRunnable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the conversion of many files on a fixed number of workers.
+ *
+ * Files wait in one priority queue, largest first, so the big files start
+ * early and do not finish alone at the end of the run. Idle workers take the
+ * next file from the queue. A worker only starts a file while the sizes of the
+ * files being converted stay under {@code maxInFlightBytes}; a file larger than
+ * the bound runs alone.
+ *
+ * Files can be submitted while the workers run; {@link #complete()} marks the
+ * end of the input. {@link #run(ThrowingRunnable, ThrowingConsumer)} scans on
+ * its own thread while the first files are converted, the order is then
+ * largest first among the files discovered so far. A failing file does not
+ * stop the others, every failure is collected in the {@link Report}.
+ */
+public class ConversionScheduler {
+    public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 256L * 1024 * 1024;
+    public static final int DEFAULT_VIRTUAL_THREADS = 256;
+
+    private static final Comparator<Job> LARGEST_FIRST = Comparator
+        .comparingLong(Job::getSize).reversed()
+        .thenComparingLong(Job::getSequence);
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final long maxInFlightBytes;
+
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>(64, LARGEST_FIRST);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Object inFlightLock = new Object();
+    private long inFlightBytes;
+
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final AtomicInteger converted = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+
+    public ConversionScheduler(ExecutorService executor, int parallelism, long maxInFlightBytes) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.maxInFlightBytes = Math.max(1, maxInFlightBytes);
+    }
+
+    /**
+     * Creates a scheduler from the --threads value: a number of platform
+     * threads, or "virtual" for virtual threads when the runtime has them
+     * (Java 21+). Older runtimes fall back to a platform thread pool.
+     */
+    public static ConversionScheduler create(String threads, long maxInFlightBytes) {
+        if ("virtual".equalsIgnoreCase(threads)) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+
+            if (virtual != null) {
+                return new ConversionScheduler(virtual, DEFAULT_VIRTUAL_THREADS, maxInFlightBytes);
+            }
+
+            Log.log("Virtual threads are not available, using platform threads");
+            threads = null;
+        }
+
+        int count = threads == null
+            ? Runtime.getRuntime().availableProcessors() * 2
+            : Integer.parseInt(threads);
+
+        if (count < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+
+        return new ConversionScheduler(Executors.newFixedThreadPool(count), count, maxInFlightBytes);
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public void submit(File file, long size) {
+        submitted.incrementAndGet();
+        queue.add(new Job(file, size, sequence.getAndIncrement()));
+    }
+
+    /**
+     * Marks the end of the input: once the queue drains the workers stop.
+     */
+    public void complete() {
+        for (int i = 0; i < parallelism; i++) {
+            queue.add(new Job(null, Long.MIN_VALUE, sequence.getAndIncrement()));
+        }
+    }
+
+    /**
+     * Converts every submitted file with {@code task} and blocks until
+     * {@link #complete()} was called and all files are done. The executor is
+     * shut down afterwards.
+     */
+    public Report run(ThrowingConsumer<File> task) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Future<?>> workers = new ArrayList<>(parallelism);
+
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                workers.add(executor.submit(() -> work(task)));
+            }
+
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                }
+                catch (ExecutionException e) {
+                    throw new RuntimeException("Conversion worker failed", e.getCause());
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        return new Report(submitted.get(), converted.get(), new ArrayList<>(failures), System.nanoTime() - start);
+    }
+
+    /**
+     * Runs {@code scan}, which submits the files, on its own thread while the
+     * workers convert them, and completes the input when it returns. A failed
+     * scan is thrown once the files it submitted are done.
+     */
+    public Report run(ThrowingRunnable scan, ThrowingConsumer<File> task) throws IOException, InterruptedException {
+        AtomicReference<Exception> scanError = new AtomicReference<>();
+
+        Thread scanner = new Thread(() -> {
+            try {
+                scan.run();
+            }
+            catch (Exception e) {
+                scanError.set(e);
+            }
+            finally {
+                complete();
+            }
+        }, "conversion-scanner");
+
+        scanner.setDaemon(true);
+        scanner.start();
+
+        Report report = run(task);
+        scanner.join();
+
+        if (scanError.get() != null) {
+            throw new IOException("Scanning the input failed", scanError.get());
+        }
+
+        return report;
+    }
+
+    private Void work(ThrowingConsumer<File> task) throws InterruptedException {
+        while (true) {
+            Job job = queue.take();
+
+            if (job.getFile() == null) {
+                return null;
+            }
+
+            long weight = Math.min(Math.max(job.getSize(), 0), maxInFlightBytes);
+            acquire(weight);
+
+            try {
+                task.accept(job.getFile());
+                converted.incrementAndGet();
+            }
+            // the MSBT reader reports malformed files with InternalError
+            catch (Exception | InternalError e) {
+                failures.add(new Failure(job.getFile(), e));
+            }
+            finally {
+                release(weight);
+            }
+        }
+    }
+
+    private void acquire(long bytes) throws InterruptedException {
+        synchronized (inFlightLock) {
+            while (inFlightBytes > 0 && inFlightBytes + bytes > maxInFlightBytes) {
+                inFlightLock.wait();
+            }
+
+            inFlightBytes += bytes;
+        }
+    }
+
+    private void release(long bytes) {
+        synchronized (inFlightLock) {
+            inFlightBytes -= bytes;
+            inFlightLock.notifyAll();
+        }
+    }
+
+    @Value
+    private static class Job {
+        File file;
+        long size;
+        long sequence;
+    }
+
+    @Value
+    public static class Failure {
+        File file;
+        Throwable error;
+    }
+
+    @Value
+    public static class Report {
+        int submitted;
+        int converted;
+        List<Failure> failures;
+        long elapsedNanos;
+
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+    }
+}
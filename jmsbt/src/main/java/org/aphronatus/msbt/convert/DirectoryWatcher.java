@@ -0,0 +1,157 @@
+package org.aphronatus.msbt.convert;
+
+import org.aphronatus.msbt.utils.FileScanner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory tree for created, modified and deleted files with one of
+ * the given extensions. Events are collected until the tree has been quiet for
+ * the debounce time, then handed to the listener as one batch, so an editor
+ * saving through a temporary file or a checkout touching many files results in
+ * a single call. Directories created later are watched as well.
+ */
+public class DirectoryWatcher implements Closeable {
+
+    @FunctionalInterface
+    public interface Listener {
+        void onChanges(Set<Path> changed, Set<Path> deleted);
+    }
+
+    private final Path root;
+    private final long debounceMillis;
+    private final String[] extensions;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    private final Set<Path> changed = new LinkedHashSet<>();
+    private final Set<Path> deleted = new LinkedHashSet<>();
+
+    public DirectoryWatcher(Path root, long debounceMillis, String... extensions) throws IOException {
+        this.root = root;
+        this.debounceMillis = debounceMillis;
+        this.extensions = extensions;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        registerAll(root);
+    }
+
+    /**
+     * Blocks and reports batches of changes until the watcher is closed or the
+     * thread is interrupted.
+     */
+    public void run(Listener listener) throws IOException, InterruptedException {
+        try {
+            while (true) {
+                WatchKey key = changed.isEmpty() && deleted.isEmpty()
+                    ? watchService.take()
+                    : watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+
+                if (key == null) {
+                    // quiet for the debounce time
+                    Set<Path> changedBatch = new LinkedHashSet<>(changed);
+                    Set<Path> deletedBatch = new LinkedHashSet<>(deleted);
+                    changed.clear();
+                    deleted.clear();
+
+                    listener.onChanges(changedBatch, deletedBatch);
+                    continue;
+                }
+
+                handleEvents(key);
+            }
+        }
+        catch (ClosedWatchServiceException e) {
+            // closed from another thread
+        }
+    }
+
+    private void handleEvents(WatchKey key) throws IOException {
+        Path directory = directories.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost, treat every file as changed
+                FileScanner.scan(root, (path, size) -> markChanged(path), extensions);
+                continue;
+            }
+
+            if (directory == null) {
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                registerAll(path);
+                FileScanner.scan(path, (file, size) -> markChanged(file), extensions);
+            }
+            else if (matches(path)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    changed.remove(path);
+                    deleted.add(path);
+                }
+                else {
+                    markChanged(path);
+                }
+            }
+        }
+
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void markChanged(Path path) {
+        deleted.remove(path);
+        changed.add(path);
+    }
+
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                directories.put(key, directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean matches(Path path) {
+        String name = path.getFileName().toString();
+
+        for (String extension : extensions) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+
+        return extensions.length == 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,25 @@
+package org.aphronatus.msbt.diff;
+
+import lombok.Value;
+
+/**
+ * One difference between two corpora. The file is the relative path without
+ * extension, so an .msbt file and its .yaml conversion are the same file.
+ * Label and texts are null when they do not apply to the type.
+ */
+@Value
+public class MSBTChange {
+    public enum Type {
+        FILE_ADDED,
+        FILE_REMOVED,
+        LABEL_ADDED,
+        LABEL_REMOVED,
+        TEXT_CHANGED
+    }
+
+    Type type;
+    String file;
+    String label;
+    String oldText;
+    String newText;
+}
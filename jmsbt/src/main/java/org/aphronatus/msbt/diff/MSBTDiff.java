@@ -0,0 +1,235 @@
+package org.aphronatus.msbt.diff;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.Value;
+import org.aphronatus.msbt.Label;
+import org.aphronatus.msbt.LabelGroup;
+import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.MSBTUtils;
+import org.aphronatus.msbt.convert.ConversionScheduler;
+import org.aphronatus.msbt.io.MSBTJSONLines;
+import org.aphronatus.msbt.io.MSBTReference;
+import org.aphronatus.msbt.utils.FileScanner;
+import org.aphronatus.msbt.utils.ThrowingInterfaces.ThrowingRunnable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Compares two directories of MSBT, YAML or JSON Lines files by file and label.
+ *
+ * Files are matched by relative path without extension. A pair with the same
+ * extension and identical bytes is skipped without being decoded, so the cost
+ * grows with the number of changed files. The labels of a changed pair are
+ * matched through a hash map of the old file's labels.
+ */
+public class MSBTDiff {
+    private static final String[] EXTENSIONS = {
+        MSBTReference.MSBT_FILE_EXTENSION, MSBTReference.MSBT_YAML_FILE_EXTENSION, MSBTReference.MSBT_JSONL_FILE_EXTENSION
+    };
+
+    /**
+     * Result of a diff: the changes sorted by file, and the files that could
+     * not be compared.
+     */
+    @Value
+    public static class Result {
+        List<MSBTChange> changes;
+        List<ConversionScheduler.Failure> failures;
+
+        /**
+         * Number of file pairs skipped because their bytes were identical.
+         */
+        int skipped;
+    }
+
+    public static Result diff(File oldDirectory, File newDirectory, String threads) throws IOException {
+        Map<String, File> oldFiles = index(oldDirectory);
+        Map<String, File> newFiles = new ConcurrentHashMap<>();
+
+        Map<String, List<MSBTChange>> changesByFile = new ConcurrentHashMap<>();
+        ConversionScheduler scheduler = ConversionScheduler.create(threads, ConversionScheduler.DEFAULT_MAX_IN_FLIGHT_BYTES);
+
+        // the new directory is scanned while the first pairs are compared
+        ThrowingRunnable scanNew = () -> scan(newDirectory, (name, newFile) -> {
+            newFiles.put(name, newFile);
+            File oldFile = oldFiles.get(name);
+
+            if (oldFile == null) {
+                changesByFile.put(name, List.of(new MSBTChange(MSBTChange.Type.FILE_ADDED, name, null, null, null)));
+            }
+            else {
+                scheduler.submit(newFile, oldFile.length() + newFile.length());
+            }
+        });
+
+        AtomicInteger skipped = new AtomicInteger();
+        ConversionScheduler.Report report;
+
+        try {
+            report = scheduler.run(scanNew, newFile -> {
+                String name = getName(newDirectory.toPath(), newFile.toPath());
+                File oldFile = oldFiles.get(name);
+
+                if (hasSameContent(oldFile, newFile)) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+
+                List<MSBTChange> changes = diff(name, MSBTUtils.readFromFile(oldFile), MSBTUtils.readFromFile(newFile));
+
+                if (!changes.isEmpty()) {
+                    changesByFile.put(name, changes);
+                }
+            });
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Diff interrupted", e);
+        }
+
+        for (String name : oldFiles.keySet()) {
+            if (!newFiles.containsKey(name)) {
+                changesByFile.put(name, List.of(new MSBTChange(MSBTChange.Type.FILE_REMOVED, name, null, null, null)));
+            }
+        }
+
+        List<MSBTChange> changes = new ArrayList<>();
+        new TreeMap<>(changesByFile).values().forEach(changes::addAll);
+
+        return new Result(changes, report.getFailures(), skipped.get());
+    }
+
+    /**
+     * Label changes between two versions of one file: labels of the new file
+     * in their order, then the labels that were removed.
+     */
+    public static List<MSBTChange> diff(String file, MSBT oldMSBT, MSBT newMSBT) {
+        Map<String, String> oldTexts = new HashMap<>();
+
+        for (LabelGroup group : oldMSBT.getLabelGroups()) {
+            for (Label label : group.getLabels()) {
+                oldTexts.put(label.getName(), oldMSBT.getStringTable().get(label.getTableIndex()));
+            }
+        }
+
+        List<MSBTChange> changes = new ArrayList<>();
+
+        for (LabelGroup group : newMSBT.getLabelGroups()) {
+            for (Label label : group.getLabels()) {
+                String newText = newMSBT.getStringTable().get(label.getTableIndex());
+
+                if (!oldTexts.containsKey(label.getName())) {
+                    changes.add(new MSBTChange(MSBTChange.Type.LABEL_ADDED, file, label.getName(), null, newText));
+                    continue;
+                }
+
+                String oldText = oldTexts.remove(label.getName());
+
+                if (!oldText.equals(newText)) {
+                    changes.add(new MSBTChange(MSBTChange.Type.TEXT_CHANGED, file, label.getName(), oldText, newText));
+                }
+            }
+        }
+
+        for (LabelGroup group : oldMSBT.getLabelGroups()) {
+            for (Label label : group.getLabels()) {
+                if (oldTexts.containsKey(label.getName())) {
+                    changes.add(new MSBTChange(MSBTChange.Type.LABEL_REMOVED, file, label.getName(), oldTexts.get(label.getName()), null));
+                }
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Writes one JSON object per change, e.g.
+     * {@code {"type":"TEXT_CHANGED","file":"ActorMsg/Attachment","label":"...","old":"...","new":"..."}}.
+     * The stream is flushed and left open.
+     */
+    public static void write(List<MSBTChange> changes, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = MSBTJSONLines.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            for (MSBTChange change : changes) {
+                generator.writeStartObject();
+                generator.writeStringField("type", change.getType().name());
+                generator.writeStringField("file", change.getFile());
+
+                if (change.getLabel() != null) {
+                    generator.writeStringField("label", change.getLabel());
+                }
+
+                if (change.getOldText() != null) {
+                    generator.writeStringField("old", change.getOldText());
+                }
+
+                if (change.getNewText() != null) {
+                    generator.writeStringField("new", change.getNewText());
+                }
+
+                generator.writeEndObject();
+            }
+
+            if (!changes.isEmpty()) {
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private static Map<String, File> index(File directory) throws IOException {
+        Map<String, File> files = new HashMap<>();
+        scan(directory, files::put);
+        return files;
+    }
+
+    /**
+     * Reports each file of the directory with its name, the relative path
+     * without extension. Two files with the same name are an error.
+     */
+    private static void scan(File directory, BiConsumer<String, File> consumer) throws IOException {
+        Path root = directory.toPath();
+        Set<String> names = new HashSet<>();
+
+        FileScanner.scan(root, (path, size) -> {
+            String name = getName(root, path);
+
+            if (!names.add(name)) {
+                throw new IOException("More than one file for " + name + " in " + directory);
+            }
+
+            consumer.accept(name, path.toFile());
+        }, EXTENSIONS);
+    }
+
+    private static String getName(Path root, Path path) {
+        String relativePath = root.relativize(path).toString().replace(File.separatorChar, '/');
+        return relativePath.substring(0, relativePath.lastIndexOf('.'));
+    }
+
+    private static boolean hasSameContent(File oldFile, File newFile) throws IOException {
+        if (oldFile.length() != newFile.length() || !MSBTUtils.getExtension(oldFile).equals(MSBTUtils.getExtension(newFile))) {
+            return false;
+        }
+
+        try (var oldChannel = new RandomAccessFile(oldFile, "r").getChannel();
+             var newChannel = new RandomAccessFile(newFile, "r").getChannel()) {
+            return oldChannel.map(FileChannel.MapMode.READ_ONLY, 0, oldChannel.size())
+                .mismatch(newChannel.map(FileChannel.MapMode.READ_ONLY, 0, newChannel.size())) < 0;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.aphronatus.msbt.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+/**
+ * JSON Lines interchange format, UTF-8 with one JSON object per line:
+ *
+ * <pre>
+ * {"byteOrderMark":-257,"version":769,"sectionSize":2,"groups":3,"texts":2}
+ * {"group":0,"label":"Name_00","index":1,"text":"..."}
+ * {"group":2,"label":"Name_01","index":0,"text":"..."}
+ * {"index":5,"text":"..."}
+ * </pre>
+ *
+ * The header comes first, then every label in group order with its text, and
+ * last the texts no label points to. Parsed with the Jackson streaming API,
+ * without data binding.
+ */
+public class MSBTJSONLines {
+    public static final String FIELD_BYTE_ORDER_MARK = "byteOrderMark";
+    public static final String FIELD_VERSION = "version";
+    public static final String FIELD_SECTION_SIZE = "sectionSize";
+    public static final String FIELD_GROUPS = "groups";
+    public static final String FIELD_TEXTS = "texts";
+
+    public static final String FIELD_GROUP = "group";
+    public static final String FIELD_LABEL = "label";
+    public static final String FIELD_INDEX = "index";
+    public static final String FIELD_TEXT = "text";
+
+    private static final JsonFactory FACTORY = new JsonFactoryBuilder()
+        .rootValueSeparator("\n")
+        .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .build();
+
+    public static JsonFactory getFactory() {
+        return FACTORY;
+    }
+}
@@ -3,9 +3,17 @@ package org.aphronatus.msbt.io;
 public class MSBTReference {
     public static final String MSBT_FILE_EXTENSION = ".msbt";
     public static final String MSBT_YAML_FILE_EXTENSION = ".yaml";
+    public static final String MSBT_JSONL_FILE_EXTENSION = ".jsonl";
 
     public static final String MSBT_FILE_MAGIC = "MsgStdBn";
     public static final String SECTION_LBL1 = "LBL1";
     public static final String SECTION_TXT2 = "TXT2";
 
+    public static final int HEADER_SIZE = 0x20;
+    public static final int SECTION_HEADER_SIZE = 0x10;
+    public static final int SECTION_ALIGNMENT = 16;
+
+    // Bucket count used for LBL1 when a file is created without labels
+    public static final int LABEL_HASH_BUCKETS = 101;
+
 }
@@ -0,0 +1,84 @@
+package org.aphronatus.msbt.io.reader;
+
+import org.aphronatus.msbt.utils.UTF16LEDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * String table backed by the raw TXT2 section, an entry is decoded the first
+ * time it is read and cached afterwards.
+ *
+ * Entries can be replaced with {@link #set} and appended with {@link #add},
+ * removing entries is not supported since it would shift the table indexes
+ * referenced by the labels.
+ */
+public class LazyStringTable extends AbstractList<String> implements RandomAccess {
+    private final int[] textOffsets;
+    private final int sectionEnd;
+    private final UTF16LEDecoder decoder;
+    private final String[] texts;
+    private final List<String> appended = new ArrayList<>();
+
+    public LazyStringTable(ByteBuffer sectionData) {
+        int textCount = sectionData.getInt(0);
+
+        this.textOffsets = new int[textCount];
+        this.sectionEnd = sectionData.limit();
+        this.decoder = new UTF16LEDecoder(sectionData);
+        this.texts = new String[textCount];
+
+        for (int i = 0; i < textCount; i++) {
+            textOffsets[i] = sectionData.getInt(4 + i * 4);
+        }
+    }
+
+    @Override
+    public synchronized String get(int index) {
+        if (index >= texts.length) {
+            return appended.get(index - texts.length);
+        }
+
+        String text = texts[index];
+
+        if (text == null) {
+            // Get next offset or section end if it's the last text
+            int nextOffset = index + 1 < textOffsets.length ? textOffsets[index + 1] : sectionEnd;
+
+            text = decoder.decode(textOffsets[index], nextOffset);
+            texts[index] = text;
+        }
+
+        return text;
+    }
+
+    @Override
+    public synchronized String set(int index, String text) {
+        if (index >= texts.length) {
+            return appended.set(index - texts.length, text);
+        }
+
+        String previous = get(index);
+        texts[index] = text;
+
+        return previous;
+    }
+
+    @Override
+    public synchronized void add(int index, String text) {
+        if (index != size()) {
+            throw new UnsupportedOperationException("Texts can only be appended to the end of the string table");
+        }
+
+        appended.add(text);
+        modCount++;
+    }
+
+    @Override
+    public synchronized int size() {
+        return texts.length + appended.size();
+    }
+}
@@ -4,34 +4,150 @@ package org.aphronatus.msbt.io.reader;
 import org.aphronatus.msbt.Label;
 import org.aphronatus.msbt.LabelGroup;
 import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.io.MSBTReference;
+import org.aphronatus.msbt.metrics.MSBTFileEvent;
+import org.aphronatus.msbt.metrics.MSBTSectionEvent;
 import org.aphronatus.msbt.utils.ByteBufferFile;
+import org.aphronatus.msbt.utils.UTF16LEDecoder;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public class MSBTReaderFile {
 
     public static MSBT fromFile(File file) throws IOException {
+        return fromFile(file, new MSBTReaderOptions());
+    }
+
+    public static MSBT fromFile(File file, MSBTReaderOptions options) throws IOException {
+        var event = new MSBTFileEvent();
+        event.begin();
+
         try {
-            var bufferFile = new ByteBufferFile(file.getAbsolutePath());
+            var bufferFile = openBufferFile(file, options);
 
             // Read Header
             var msbt = readHeader(bufferFile);
 
             // Read Sections
-            putSections(msbt, bufferFile);
+            putSections(msbt, bufferFile, options);
 
+            event.complete(MSBTFileEvent.READ, file, msbt);
             return msbt;
         } catch (Exception e) {
             throw new IOException("Error while reading MSBT file", e);
         }
     }
 
+    /**
+     * Reads the MSBT starting at the buffer position, the buffer itself is not modified.
+     * With a lazy string table the buffer must stay unchanged while the table is in use.
+     */
+    public static MSBT fromBuffer(ByteBuffer buffer) throws IOException {
+        return fromBuffer(buffer, new MSBTReaderOptions());
+    }
+
+    public static MSBT fromBuffer(ByteBuffer buffer, MSBTReaderOptions options) throws IOException {
+        try {
+            var bufferFile = new ByteBufferFile(buffer.slice(), ByteOrder.LITTLE_ENDIAN);
+
+            var msbt = readHeader(bufferFile);
+            putSections(msbt, bufferFile, options);
+
+            return msbt;
+        } catch (Exception e) {
+            throw new IOException("Error while reading MSBT buffer", e);
+        }
+    }
+
+    /**
+     * Reads the channel until the end of stream, the channel is left open.
+     */
+    public static MSBT fromChannel(ReadableByteChannel channel) throws IOException {
+        return fromChannel(channel, new MSBTReaderOptions());
+    }
+
+    public static MSBT fromChannel(ReadableByteChannel channel, MSBTReaderOptions options) throws IOException {
+        return fromBuffer(readFully(channel), options);
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel channel) throws IOException {
+        if (channel instanceof SeekableByteChannel seekable) {
+            // Size is known, read exactly the remaining bytes
+            ByteBuffer buffer = ByteBuffer.allocate((int) (seekable.size() - seekable.position()));
+
+            int read = 0;
+
+            while (buffer.hasRemaining() && read >= 0) {
+                read = channel.read(buffer);
+            }
+
+            return buffer.flip();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+        while (channel.read(buffer) >= 0) {
+            if (!buffer.hasRemaining()) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+        }
+
+        return buffer.flip();
+    }
+
+    public static void accept(ByteBuffer buffer, MSBTVisitor visitor) throws IOException {
+        try {
+            accept(new ByteBufferFile(buffer.slice(), ByteOrder.LITTLE_ENDIAN), visitor);
+        } catch (Exception e) {
+            throw new IOException("Error while reading MSBT buffer", e);
+        }
+    }
+
+    public static void accept(File file, MSBTVisitor visitor) throws IOException {
+        accept(file, new MSBTReaderOptions(), visitor);
+    }
+
+    public static void accept(File file, MSBTReaderOptions options, MSBTVisitor visitor) throws IOException {
+        try {
+            var bufferFile = openBufferFile(file, options);
+
+            accept(bufferFile, visitor);
+        } catch (Exception e) {
+            throw new IOException("Error while reading MSBT file", e);
+        }
+    }
+
+    public static void accept(ByteBufferFile bufferFile, MSBTVisitor visitor) {
+        var header = readHeader(bufferFile);
+        visitor.onHeader(header.getByteOrderMark(), header.getVersion(), header.getSectionSize());
+
+        forEachSection(header.getSectionSize(), bufferFile, (name, bufferSection) -> {
+            visitor.onSection(name, bufferSection.limit());
+
+            switch (name) {
+                case "LBL1" -> visitLabelGroups(bufferSection, visitor);
+                case "TXT2" -> visitStringTable(bufferSection, visitor);
+            }
+        });
+
+        visitor.onEnd();
+    }
+
+    private static ByteBufferFile openBufferFile(File file, MSBTReaderOptions options) throws IOException {
+        return options.isMapped()
+            ? ByteBufferFile.map(file.getAbsolutePath())
+            : new ByteBufferFile(file.getAbsolutePath());
+    }
+
     public static MSBT readHeader(ByteBufferFile bufferFile) {
         String magic = bufferFile.readString(8, StandardCharsets.US_ASCII);
 
@@ -67,26 +183,41 @@ public class MSBTReaderFile {
     record SectionInfo(String name, int size) {}
 
     public static void putSections(MSBT msbt, ByteBufferFile bufferFile) {
-        List<LabelGroup> labelGroups = new ArrayList<>();
-        List<String> stringTable = new ArrayList<>();
+        putSections(msbt, bufferFile, new MSBTReaderOptions());
+    }
 
-        for (int i = 0; i < msbt.getSectionSize(); i++) {
+    public static void putSections(MSBT msbt, ByteBufferFile bufferFile, MSBTReaderOptions options) {
+        forEachSection(msbt.getSectionSize(), bufferFile, (name, bufferSection) -> {
+            var event = new MSBTSectionEvent();
+            event.begin();
+
+            switch (name) {
+                case "LBL1" -> msbt.setLabelGroups(readLabelGroups(bufferSection));
+                case "TXT2" -> msbt.setStringTable(options.isLazyStringTable()
+                    ? new LazyStringTable(bufferSection)
+                    : readStringTable(bufferSection));
+            }
+
+            event.complete(MSBTFileEvent.READ, name, bufferSection.limit(), msbt.getLabelGroups(), msbt.getStringTable());
+        });
+    }
+
+    /**
+     * Walks the sections following the header, each section is handed out as a
+     * little endian slice of the file buffer starting after its 16 byte header.
+     */
+    public static void forEachSection(int sectionCount, ByteBufferFile bufferFile, BiConsumer<String, ByteBuffer> consumer) {
+        for (int i = 0; i < sectionCount; i++) {
             long position = bufferFile.position();
 
             var sectionInfo = readSectionInfo(bufferFile);
-            var bufferSection = bufferFile.read(sectionInfo.size(), ByteOrder.LITTLE_ENDIAN);
+            var bufferSection = bufferFile.slice(sectionInfo.size(), ByteOrder.LITTLE_ENDIAN);
 
-            switch (sectionInfo.name()) {
-                case "LBL1" -> labelGroups = readLabelGroups(bufferSection);
-                case "TXT2" -> stringTable = readStringTable(bufferSection);
-            }
+            consumer.accept(sectionInfo.name(), bufferSection);
 
-            bufferFile.position((int) (position + sectionInfo.size() + 0x10));
-            bufferFile.align(16);
+            bufferFile.position((int) (position + sectionInfo.size() + MSBTReference.SECTION_HEADER_SIZE));
+            bufferFile.align(MSBTReference.SECTION_ALIGNMENT);
         }
-
-        msbt.setLabelGroups(labelGroups);
-        msbt.setStringTable(stringTable);
     }
 
     private static SectionInfo readSectionInfo(ByteBufferFile bufferFile) {
@@ -102,11 +233,35 @@ public class MSBTReaderFile {
     record OffsetLabel(int stringCount, int stringOffset) {}
 
     public static List<LabelGroup> readLabelGroups(ByteBuffer sectionData) {
+        List<LabelGroup> groups = new ArrayList<>();
+
+        visitLabelGroups(sectionData, new MSBTVisitor() {
+            @Override
+            public void onLabelGroup(int groupId, int labelCount) {
+                var group = new LabelGroup();
+                group.setId(groupId);
+                group.setLabels(new ArrayList<>(labelCount));
+
+                groups.add(group);
+            }
+
+            @Override
+            public void onLabel(int groupId, String name, int tableIndex) {
+                var label = new Label();
+                label.setName(name);
+                label.setTableIndex(tableIndex);
+
+                groups.get(groupId).add(label);
+            }
+        });
+
+        return groups;
+    }
+
+    public static void visitLabelGroups(ByteBuffer sectionData, MSBTVisitor visitor) {
         int offsetCount = sectionData.getInt();
 
         OffsetLabel[] offsets = new OffsetLabel[offsetCount];
-        List<LabelGroup> groups = new ArrayList<>(offsetCount);
-
 
         // Read Offsets
         for (int i = 0; i < offsetCount; i++) {
@@ -123,61 +278,51 @@ public class MSBTReaderFile {
             // Skip to offset
             sectionData.position(offset.stringOffset());
 
-            var group = new LabelGroup();
-            group.setId(index);
-            group.setLabels(new ArrayList<>(offset.stringCount()));
+            visitor.onLabelGroup(index, offset.stringCount());
 
             for (int j = 0; j < offset.stringCount(); j++) {
-                byte stringLenght = sectionData.get();
+                int stringLenght = Byte.toUnsignedInt(sectionData.get());
 
                 byte[] stringBytes = new byte[stringLenght];
                 sectionData.get(stringBytes);
 
                 int tableIndex = sectionData.getInt();
 
-                var label = new Label();
-                label.setName(new String(stringBytes, StandardCharsets.UTF_8));
-                label.setTableIndex(tableIndex);
-
-                group.add(label);
+                visitor.onLabel(index, new String(stringBytes, StandardCharsets.UTF_8), tableIndex);
             }
-
-            groups.add(index, group);
         }
-
-        return groups;
     }
 
     public static List<String> readStringTable(ByteBuffer sectionData) {
+        List<String> texts = new ArrayList<>();
+
+        visitStringTable(sectionData, new MSBTVisitor() {
+            @Override
+            public void onText(int tableIndex, String text) {
+                texts.add(text);
+            }
+        });
+
+        return texts;
+    }
+
+    public static void visitStringTable(ByteBuffer sectionData, MSBTVisitor visitor) {
         int textCount = sectionData.getInt();
 
         int[] textOffsets = new int[textCount];
-        List<String> texts = new ArrayList<>(textCount);
 
         for (int i = 0; i < textCount; i++) {
             textOffsets[i] = sectionData.getInt();
         }
 
-        for (int i = 0; i < textCount; i++) {
-            int offset = textOffsets[i];
-            sectionData.position(offset);
-
-            StringBuilder text = new StringBuilder();
+        var decoder = new UTF16LEDecoder(sectionData);
 
+        for (int i = 0; i < textCount; i++) {
             // Get next offset or section end if it's the last text
             int nextOffset = i + 1 < textCount ? textOffsets[i + 1] : sectionData.limit();
 
-            byte[] bytes = new byte[2]; // 2 bytes = 1 character
-
-            while (sectionData.position() < nextOffset) {
-                sectionData.get(bytes);
-                text.append(new String(bytes, StandardCharsets.UTF_16LE));
-            }
-
-            texts.add(i, text.toString());
+            visitor.onText(i, decoder.decode(textOffsets[i], nextOffset));
         }
-
-        return texts;
     }
 
 }
@@ -0,0 +1,119 @@
+package org.aphronatus.msbt.io.reader;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.aphronatus.msbt.Label;
+import org.aphronatus.msbt.LabelGroup;
+import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.io.MSBTJSONLines;
+import org.aphronatus.msbt.metrics.MSBTFileEvent;
+import org.aphronatus.msbt.utils.LabelHashUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.aphronatus.msbt.io.MSBTJSONLines.*;
+
+public class MSBTReaderJSONLinesFile {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static MSBT fromFile(File file) throws IOException {
+        var event = new MSBTFileEvent();
+        event.begin();
+
+        try (var inputStream = new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE)) {
+            var msbt = read(inputStream);
+
+            event.complete(MSBTFileEvent.READ, file, msbt);
+            return msbt;
+        }
+    }
+
+    /**
+     * Reads UTF-8 JSON Lines, see {@link MSBTJSONLines}. The stream is left open.
+     */
+    public static MSBT read(InputStream inputStream) throws IOException {
+        try (JsonParser parser = MSBTJSONLines.getFactory().createParser(inputStream)) {
+            var msbt = new MSBT();
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Missing JSON Lines header");
+            }
+
+            int groupCount = 0;
+            int textCount = 0;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case FIELD_BYTE_ORDER_MARK -> msbt.setByteOrderMark(parser.getShortValue());
+                    case FIELD_VERSION -> msbt.setVersion(parser.getShortValue());
+                    case FIELD_SECTION_SIZE -> msbt.setSectionSize(parser.getShortValue());
+                    case FIELD_GROUPS -> groupCount = parser.getIntValue();
+                    case FIELD_TEXTS -> textCount = parser.getIntValue();
+                    default -> parser.skipChildren();
+                }
+            }
+
+            List<LabelGroup> groups = LabelHashUtils.createGroups(groupCount);
+            String[] texts = new String[textCount];
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                int group = -1;
+                String label = null;
+                int index = -1;
+                String text = null;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+
+                    switch (field) {
+                        case FIELD_GROUP -> group = parser.getIntValue();
+                        case FIELD_LABEL -> label = parser.getText();
+                        case FIELD_INDEX -> index = parser.getIntValue();
+                        case FIELD_TEXT -> text = parser.getText();
+                        default -> parser.skipChildren();
+                    }
+                }
+
+                if (index < 0 || index >= textCount || text == null) {
+                    throw new IOException("Invalid JSON Lines entry at " + parser.getCurrentLocation());
+                }
+
+                texts[index] = text;
+
+                if (label != null) {
+                    if (group < 0 || group >= groupCount) {
+                        throw new IOException("Invalid label group " + group + " for label " + label);
+                    }
+
+                    var labelBean = new Label();
+                    labelBean.setName(label);
+                    labelBean.setTableIndex(index);
+
+                    groups.get(group).add(labelBean);
+                }
+            }
+
+            for (int i = 0; i < texts.length; i++) {
+                if (texts[i] == null) {
+                    throw new IOException("Missing text for index " + i);
+                }
+            }
+
+            msbt.setLabelGroups(groups);
+            msbt.setStringTable(new ArrayList<>(Arrays.asList(texts)));
+
+            return msbt;
+        }
+    }
+}
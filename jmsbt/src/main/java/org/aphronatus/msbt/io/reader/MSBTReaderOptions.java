@@ -0,0 +1,24 @@
+package org.aphronatus.msbt.io.reader;
+
+import lombok.Data;
+
+@Data
+public class MSBTReaderOptions {
+    // Map the file with FileChannel.map instead of copying it into the heap
+    private boolean mapped = false;
+
+    // Keep TXT2 undecoded and decode each text on first access, see LazyStringTable
+    private boolean lazyStringTable = false;
+
+    public static MSBTReaderOptions mapped() {
+        var options = new MSBTReaderOptions();
+        options.setMapped(true);
+        return options;
+    }
+
+    public static MSBTReaderOptions lazy() {
+        var options = new MSBTReaderOptions();
+        options.setLazyStringTable(true);
+        return options;
+    }
+}
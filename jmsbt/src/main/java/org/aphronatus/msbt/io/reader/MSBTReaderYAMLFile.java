@@ -1,22 +1,37 @@
 package org.aphronatus.msbt.io.reader;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.metrics.MSBTFileEvent;
 import org.aphronatus.msbt.utils.YAMLObjectMapper;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 public class MSBTReaderYAMLFile {
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     public static MSBT fromFile(File file) throws IOException {
-        ObjectMapper mapper = YAMLObjectMapper.getMapper();
-        // UTF-16LE
-        InputStreamReader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_16LE);
-        return mapper.readValue(reader, MSBT.class);
+        var event = new MSBTFileEvent();
+        event.begin();
+
+        try (var inputStream = Files.newInputStream(file.toPath())) {
+            var msbt = read(inputStream);
+
+            event.complete(MSBTFileEvent.READ, file, msbt);
+            return msbt;
+        }
+    }
+
+    /**
+     * Reads an UTF-16LE YAML document, the stream is left open.
+     */
+    public static MSBT read(InputStream inputStream) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_16LE), BUFFER_SIZE);
+        return YAMLObjectMapper.getMSBTReader().readValue(reader);
     }
 }
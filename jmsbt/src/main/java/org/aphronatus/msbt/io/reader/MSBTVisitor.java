@@ -0,0 +1,24 @@
+package org.aphronatus.msbt.io.reader;
+
+/**
+ * Callbacks for a single pass over a binary MSBT file, see {@link MSBTReaderFile#accept}.
+ *
+ * Events follow the file layout: the header first, then every section in file
+ * order. LBL1 reports each label group followed by its labels, TXT2 reports the
+ * texts by table index. Nothing is retained between callbacks, so a visitor that
+ * only aggregates runs in constant memory.
+ */
+public interface MSBTVisitor {
+
+    default void onHeader(short byteOrderMark, short version, short sectionSize) {}
+
+    default void onSection(String name, int size) {}
+
+    default void onLabelGroup(int groupId, int labelCount) {}
+
+    default void onLabel(int groupId, String name, int tableIndex) {}
+
+    default void onText(int tableIndex, String text) {}
+
+    default void onEnd() {}
+}
@@ -1,212 +1,286 @@
 package org.aphronatus.msbt.io.writer;
 
+import org.aphronatus.msbt.Label;
+import org.aphronatus.msbt.LabelGroup;
 import org.aphronatus.msbt.MSBT;
 import org.aphronatus.msbt.io.MSBTReference;
-import org.aphronatus.msbt.utils.FileWriterBuffer;
+import org.aphronatus.msbt.metrics.MSBTFileEvent;
+import org.aphronatus.msbt.metrics.MSBTSectionEvent;
+import org.aphronatus.msbt.utils.BufferPool;
+import org.aphronatus.msbt.utils.LabelHashUtils;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 
 public class MSBTWriterFile {
+    private static final byte SECTION_PADDING = (byte) 0xAB;
+
     public static void writeFile(MSBT msbt, File file) throws IOException {
-        try (var fileWriter = new FileWriterBuffer(file)) {
-            fileWriter.write(writeHeader(msbt).array());
+        var event = new MSBTFileEvent();
+        event.begin();
 
-            if (!msbt.getLabelGroups().isEmpty()) {
-                fileWriter.write(getLBL1SectionBuffer(msbt).array());
-                fileWriter.align(16, (byte) 0xAB);
-            }
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(msbt, channel);
+        }
 
-            if (!msbt.getStringTable().isEmpty()) {
-                fileWriter.write(getTXT2SectionBuffer(msbt).array());
-                fileWriter.align(16, (byte) 0xAB);
-            }
+        event.complete(MSBTFileEvent.WRITE, file, msbt);
+    }
 
-            // write the size of the file
-            fileWriter.position(0x12);
+    /**
+     * Writes the encoded file to the channel, the channel is left open.
+     */
+    public static void write(MSBT msbt, WritableByteChannel channel) throws IOException {
+        var buffer = BufferPool.acquire(encodedSize(msbt), ByteOrder.LITTLE_ENDIAN);
 
-            var sizeFileBuffer = ByteBuffer
-                    .allocate(4)
-                    .order(ByteOrder.LITTLE_ENDIAN)
-                    .putInt((int) fileWriter.size());
+        try {
+            encode(msbt, buffer);
+            buffer.flip();
 
-            fileWriter.write(sizeFileBuffer.array());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        finally {
+            BufferPool.release(buffer);
         }
     }
 
-    private static ByteBuffer writeHeader(MSBT msbt) throws IOException {
-        var header = ByteBuffer.allocate(0x20).order(ByteOrder.LITTLE_ENDIAN);
+    /**
+     * Writes the encoded file to the stream, the stream is neither flushed nor closed.
+     */
+    public static void write(MSBT msbt, OutputStream outputStream) throws IOException {
+        outputStream.write(toByteArray(msbt));
+    }
 
-        header.put(MSBTReference.MSBT_FILE_MAGIC.getBytes(StandardCharsets.US_ASCII));
+    public static byte[] toByteArray(MSBT msbt) {
+        byte[] bytes = new byte[encodedSize(msbt)];
+        encode(msbt, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
 
-        header.putShort(msbt.getByteOrderMark());
-        header.putShort((short) 0x0000);
+    /**
+     * Exact size of the encoded file, including the section padding.
+     */
+    public static int encodedSize(MSBT msbt) {
+        return encodedSize(msbt.getLabelGroups(), msbt.getStringTable());
+    }
 
-        header.putShort(msbt.getVersion());
-        header.putShort(msbt.getSectionSize());
+    private static int encodedSize(List<LabelGroup> groups, List<String> texts) {
+        int size = MSBTReference.HEADER_SIZE;
 
-        // Size section, we'll write it later
-        header.putShort((short) 0x0000);
+        if (!groups.isEmpty()) {
+            size += align(MSBTReference.SECTION_HEADER_SIZE + getLBL1SectionSize(groups));
+        }
 
-        // Unknown
-        header.put(new byte[10]);
+        if (!texts.isEmpty()) {
+            size += align(MSBTReference.SECTION_HEADER_SIZE + getTXT2SectionSize(texts));
+        }
 
-        return header;
+        return size;
     }
 
-    private static ByteBuffer getLBL1SectionBuffer(MSBT msbt) throws IOException {
-        var sizeOffsetLabel = msbt.getLabelGroups().size();
-        var groups = msbt.getLabelGroups();
-
-        var labelOffsets = new int[sizeOffsetLabel];
+    /**
+     * Encodes the whole file at the buffer position, the buffer needs
+     * {@link #encodedSize(MSBT)} bytes remaining.
+     *
+     * Labels that are not in the LBL1 bucket of their hash, e.g. labels added
+     * to an arbitrary group, are moved to the right bucket in the output.
+     */
+    public static void encode(MSBT msbt, ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
 
-        var labelStringTableBuffer = new ByteArrayOutputStream();
+        var groups = LabelHashUtils.placeLabels(msbt.getLabelGroups());
 
-        // We first write the labels to get the offsets
-        for (int i = 0; i < sizeOffsetLabel; i++) {
-            var labelGroup = groups.get(i);
-            var sizeLabel = labelGroup.getLabels().size();
+        int start = buffer.position();
+        writeHeader(msbt, buffer, getSectionCount(groups, msbt.getStringTable()), encodedSize(groups, msbt.getStringTable()));
 
-            ByteArrayOutputStream labelGroupBuffer = new ByteArrayOutputStream();
+        if (!groups.isEmpty()) {
+            var event = new MSBTSectionEvent();
+            event.begin();
 
-            for (int j = 0; j < sizeLabel; j++) {
-                var label = labelGroup.getLabels().get(j);
-                var sizeString = label.getName().length();
+            int sectionStart = buffer.position();
+            writeLBL1Section(groups, buffer);
+            writePadding(buffer, start);
 
-                var labelBuffer = ByteBuffer
-                    // 1 byte for the size of the string
-                    // sizeString bytes for the string
-                    // 4 bytes for the table index
-                    .allocate(1 + sizeString + 4)
-                    .order(ByteOrder.LITTLE_ENDIAN);
+            event.complete(MSBTFileEvent.WRITE, MSBTReference.SECTION_LBL1, buffer.position() - sectionStart, groups, msbt.getStringTable());
+        }
 
-                labelBuffer.put((byte) sizeString);
-                labelBuffer.put(label.getName().getBytes(StandardCharsets.UTF_8));
-                labelBuffer.putInt(label.getTableIndex());
+        if (!msbt.getStringTable().isEmpty()) {
+            var event = new MSBTSectionEvent();
+            event.begin();
 
-                labelGroupBuffer.write(labelBuffer.array());
-            }
+            int sectionStart = buffer.position();
+            writeTXT2Section(msbt.getStringTable(), buffer);
+            writePadding(buffer, start);
 
-            labelStringTableBuffer.write(labelGroupBuffer.toByteArray());
-            labelOffsets[i] = labelGroupBuffer.size();
+            event.complete(MSBTFileEvent.WRITE, MSBTReference.SECTION_TXT2, buffer.position() - sectionStart, groups, msbt.getStringTable());
         }
+    }
 
-        // initial offset of labels is the size of the offset labels + 4 bytes for the offset count
-        int offset = sizeOffsetLabel * 8 + 4;
+    // Only LBL1 and TXT2 are written, the header must not announce more
+    private static short getSectionCount(List<LabelGroup> groups, List<String> texts) {
+        return (short) ((groups.isEmpty() ? 0 : 1) + (texts.isEmpty() ? 0 : 1));
+    }
 
-        // We then write the offset labels
+    private static void writeHeader(MSBT msbt, ByteBuffer buffer, short sectionCount, int fileSize) {
+        buffer.put(MSBTReference.MSBT_FILE_MAGIC.getBytes(StandardCharsets.US_ASCII));
 
-        ByteArrayOutputStream offsetLabelBufferTable = new ByteArrayOutputStream();
+        buffer.putShort(msbt.getByteOrderMark());
+        buffer.putShort((short) 0x0000);
 
-        for (int i = 0; i < sizeOffsetLabel; i++) {
-            var stringCount = groups.get(i).getLabels().size();
-            var stringOffset = offset;
+        buffer.putShort(msbt.getVersion());
+        buffer.putShort(sectionCount);
 
-            var offsetLabelBuffer = ByteBuffer
-                // 4 bytes for the string count
-                // 4 bytes for the string offset
-                .allocate(8)
-                .order(ByteOrder.LITTLE_ENDIAN);
+        // Unknown
+        buffer.putShort((short) 0x0000);
 
-            offsetLabelBuffer.putInt(stringCount);
-            offsetLabelBuffer.putInt(stringOffset);
+        buffer.putInt(fileSize);
 
-            offsetLabelBufferTable.write(offsetLabelBuffer.array());
+        // Unknown
+        buffer.put(new byte[10]);
+    }
 
-            offset += labelOffsets[i];
+    private static int getLBL1SectionSize(List<LabelGroup> groups) {
+        // 4 bytes for the offset count
+        // 8 bytes for each offset entry
+        int size = 4 + groups.size() * 8;
+
+        for (LabelGroup group : groups) {
+            for (Label label : group.getLabels()) {
+                // 1 byte for the size of the string
+                // the string bytes
+                // 4 bytes for the table index
+                size += 1 + utf8Length(label.getName()) + 4;
+            }
         }
 
-        // 4 bytes for the section size
-        // sizeLabelOffsetTable
-        // sizeLabelStringTable
-        int sizeSection = 4 + offsetLabelBufferTable.size() + labelStringTableBuffer.size();
-
-        // now we write the complete LBL1 section
-        ByteBuffer lbl1SectionBuffer = ByteBuffer
-            // Label section header size
-            // size section
-            .allocate(sizeSection + 16)
-            .order(ByteOrder.LITTLE_ENDIAN);
-
-        // Header Section
-        lbl1SectionBuffer.put(getSectionBuffer(MSBTReference.SECTION_LBL1, sizeSection).array());
-
-        // Label Section Offset Table
-        lbl1SectionBuffer.putInt(sizeOffsetLabel);
-        lbl1SectionBuffer.put(offsetLabelBufferTable.toByteArray());
+        return size;
+    }
 
-        // Label Section String Table
-        lbl1SectionBuffer.put(labelStringTableBuffer.toByteArray());
+    private static void writeLBL1Section(List<LabelGroup> groups, ByteBuffer buffer) {
+        writeSectionHeader(buffer, MSBTReference.SECTION_LBL1, getLBL1SectionSize(groups));
 
-        return lbl1SectionBuffer;
-    }
+        // Label Section Offset Table, labels start right after it
+        int offset = 4 + groups.size() * 8;
 
-    public static ByteBuffer getTXT2SectionBuffer(MSBT msbt) throws IOException {
-        // Texts Offset Table
-        // Texts Section String Table
+        buffer.putInt(groups.size());
 
-        var texts = msbt.getStringTable();
-        var sizeTexts = texts.size();
+        for (LabelGroup group : groups) {
+            buffer.putInt(group.getLabels().size());
+            buffer.putInt(offset);
 
-        int[] offsetTable = new int[sizeTexts];
+            for (Label label : group.getLabels()) {
+                offset += 1 + utf8Length(label.getName()) + 4;
+            }
+        }
 
-        // offset size * 4 + 4 bytes for the offset count
-        int offset = sizeTexts * 4 + 4;
+        // Label Section String Table
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
 
-        ByteArrayOutputStream textsBuffer = new ByteArrayOutputStream();
+        for (LabelGroup group : groups) {
+            for (Label label : group.getLabels()) {
+                int sizePosition = buffer.position();
+                buffer.put((byte) 0);
 
-        for (int i = 0; i < sizeTexts; i++) {
-            var text = texts.get(i);
-            var textBytes = text.getBytes(StandardCharsets.UTF_16LE);
-            var sizeText = textBytes.length;
+                encoder.reset();
+                CoderResult result = encoder.encode(CharBuffer.wrap(label.getName()), buffer, true);
 
-            textsBuffer.write(textBytes);
+                if (result.isError()) {
+                    throw new IllegalArgumentException("Invalid label name: " + label.getName());
+                }
 
-            offsetTable[i] = offset;
-            offset += sizeText;
+                buffer.put(sizePosition, (byte) (buffer.position() - sizePosition - 1));
+                buffer.putInt(label.getTableIndex());
+            }
         }
+    }
 
+    private static int getTXT2SectionSize(List<String> texts) {
         // 4 bytes for offset count
         // 4 bytes for each offset entry
-        // size of the string table
-        var sectionSize = 4 + offsetTable.length * 4 + textsBuffer.size();
+        int size = 4 + texts.size() * 4;
+
+        for (String text : texts) {
+            // UTF-16LE, 2 bytes per char
+            size += text.length() * 2;
+        }
 
-        ByteBuffer txt2SectionBuffer = ByteBuffer
-            // 16 bytes for the section header
-            // size of the section
-            .allocate(16 + sectionSize)
-            .order(ByteOrder.LITTLE_ENDIAN);
+        return size;
+    }
 
-        txt2SectionBuffer.put(getSectionBuffer(MSBTReference.SECTION_TXT2, sectionSize).array());
+    private static void writeTXT2Section(List<String> texts, ByteBuffer buffer) {
+        writeSectionHeader(buffer, MSBTReference.SECTION_TXT2, getTXT2SectionSize(texts));
 
         // Texts Section Offset Table
-        txt2SectionBuffer.putInt(sizeTexts);
+        int offset = 4 + texts.size() * 4;
 
-        for (int i = 0; i < sizeTexts; i++) {
-            txt2SectionBuffer.putInt(offsetTable[i]);
-        }
+        buffer.putInt(texts.size());
 
-        // Texts Section String Table
-        txt2SectionBuffer.put(textsBuffer.toByteArray());
+        for (String text : texts) {
+            buffer.putInt(offset);
+            offset += text.length() * 2;
+        }
 
-        return txt2SectionBuffer;
-    }
+        // Texts Section String Table, copied in bulk through a little endian char view
+        CharBuffer chars = buffer.asCharBuffer();
 
-    private static ByteBuffer getSectionBuffer(String name, int size) {
-        var buffer = ByteBuffer
-            .allocate(16)
-            .order(ByteOrder.LITTLE_ENDIAN);
+        for (String text : texts) {
+            chars.put(text);
+        }
 
-        String nameSection = name.substring(0, 4);
+        buffer.position(buffer.position() + chars.position() * 2);
+    }
 
-        buffer.put(nameSection.getBytes(StandardCharsets.US_ASCII));
+    private static void writeSectionHeader(ByteBuffer buffer, String name, int size) {
+        buffer.put(name.substring(0, 4).getBytes(StandardCharsets.US_ASCII));
         buffer.putInt(size);
         buffer.put(new byte[8]);
+    }
+
+    private static void writePadding(ByteBuffer buffer, int fileStart) {
+        int padding = align(buffer.position() - fileStart) - (buffer.position() - fileStart);
+
+        for (int i = 0; i < padding; i++) {
+            buffer.put(SECTION_PADDING);
+        }
+    }
+
+    private static int align(int size) {
+        return (size + MSBTReference.SECTION_ALIGNMENT - 1) & -MSBTReference.SECTION_ALIGNMENT;
+    }
+
+    private static int utf8Length(String name) {
+        int length = 0;
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            if (c < 0x80) {
+                length += 1;
+            }
+            else if (c < 0x800) {
+                length += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < name.length() && Character.isLowSurrogate(name.charAt(i + 1))) {
+                length += 4;
+                i++;
+            }
+            else {
+                length += 3;
+            }
+        }
 
-        return buffer;
+        return length;
     }
 }
@@ -0,0 +1,79 @@
+package org.aphronatus.msbt.io.writer;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.aphronatus.msbt.Label;
+import org.aphronatus.msbt.LabelGroup;
+import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.io.MSBTJSONLines;
+import org.aphronatus.msbt.metrics.MSBTFileEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.aphronatus.msbt.io.MSBTJSONLines.*;
+
+public class MSBTWriterJSONLinesFile {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static void writeFile(MSBT msbt, File file) throws IOException {
+        var event = new MSBTFileEvent();
+        event.begin();
+
+        try (var outputStream = new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE)) {
+            write(msbt, outputStream);
+        }
+
+        event.complete(MSBTFileEvent.WRITE, file, msbt);
+    }
+
+    /**
+     * Writes the lines as UTF-8 and flushes them, the stream is left open.
+     */
+    public static void write(MSBT msbt, OutputStream outputStream) throws IOException {
+        List<String> texts = msbt.getStringTable();
+        boolean[] referenced = new boolean[texts.size()];
+
+        try (JsonGenerator generator = MSBTJSONLines.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeNumberField(FIELD_BYTE_ORDER_MARK, msbt.getByteOrderMark());
+            generator.writeNumberField(FIELD_VERSION, msbt.getVersion());
+            generator.writeNumberField(FIELD_SECTION_SIZE, msbt.getSectionSize());
+            generator.writeNumberField(FIELD_GROUPS, msbt.getLabelGroups().size());
+            generator.writeNumberField(FIELD_TEXTS, texts.size());
+            generator.writeEndObject();
+
+            List<LabelGroup> groups = msbt.getLabelGroups();
+
+            // The reader takes the group as a position in the list, as the
+            // binary and compact formats do, whatever the ids are
+            for (int group = 0; group < groups.size(); group++) {
+                for (Label label : groups.get(group).getLabels()) {
+                    generator.writeStartObject();
+                    generator.writeNumberField(FIELD_GROUP, group);
+                    generator.writeStringField(FIELD_LABEL, label.getName());
+                    generator.writeNumberField(FIELD_INDEX, label.getTableIndex());
+                    generator.writeStringField(FIELD_TEXT, texts.get(label.getTableIndex()));
+                    generator.writeEndObject();
+
+                    referenced[label.getTableIndex()] = true;
+                }
+            }
+
+            for (int i = 0; i < texts.size(); i++) {
+                if (!referenced[i]) {
+                    generator.writeStartObject();
+                    generator.writeNumberField(FIELD_INDEX, i);
+                    generator.writeStringField(FIELD_TEXT, texts.get(i));
+                    generator.writeEndObject();
+                }
+            }
+
+            generator.writeRaw('\n');
+        }
+    }
+}
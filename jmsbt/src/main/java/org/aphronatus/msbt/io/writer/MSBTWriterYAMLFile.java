@@ -1,21 +1,38 @@
 package org.aphronatus.msbt.io.writer;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.metrics.MSBTFileEvent;
 import org.aphronatus.msbt.utils.YAMLObjectMapper;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 public class MSBTWriterYAMLFile {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public static void writeFile(MSBT msbt, File file) throws IOException {
-        ObjectMapper mapper = YAMLObjectMapper.getMapper();
+        var event = new MSBTFileEvent();
+        event.begin();
+
+        try (var outputStream = Files.newOutputStream(file.toPath())) {
+            write(msbt, outputStream);
+        }
+
+        event.complete(MSBTFileEvent.WRITE, file, msbt);
+    }
+
+    /**
+     * Writes the YAML document as UTF-16LE and flushes it, the stream is left open.
+     */
+    public static void write(MSBT msbt, OutputStream outputStream) throws IOException {
         // UTF-16LE is the default encoding for YAML
-        OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_16LE);
-        mapper.writeValue(writer, msbt);
+        var writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_16LE), BUFFER_SIZE);
+        YAMLObjectMapper.getMSBTWriter().writeValue(writer, msbt);
+        writer.flush();
     }
 }
@@ -0,0 +1,115 @@
+package org.aphronatus.msbt.metrics;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per file timing and allocation of a conversion run, printed as a summary
+ * table at the end. Files are measured on the thread converting them, the
+ * allocation is the heap allocated by that thread as reported by the
+ * HotSpot ThreadMXBean, -1 when the JVM does not support it.
+ */
+public class ConversionMetrics {
+    private static final int SLOWEST_FILES = 10;
+
+    private static final com.sun.management.ThreadMXBean THREADS = getThreadMXBean();
+
+    record FileMetrics(File file, long bytes, long nanos, long allocatedBytes) {}
+
+    /**
+     * Start of the measurement of one file, taken on the converting thread.
+     */
+    public record Sample(long nanos, long allocatedBytes) {}
+
+    private final ConcurrentLinkedQueue<FileMetrics> files = new ConcurrentLinkedQueue<>();
+
+    public static Sample start() {
+        return new Sample(System.nanoTime(), allocatedBytes());
+    }
+
+    /**
+     * Records the file converted since the sample was taken, must be called
+     * on the thread that took the sample.
+     */
+    public void record(File file, Sample sample) {
+        long nanos = System.nanoTime() - sample.nanos();
+        long allocated = allocatedBytes();
+
+        files.add(new FileMetrics(file, file.length(), nanos,
+            allocated < 0 || sample.allocatedBytes() < 0 ? -1 : allocated - sample.allocatedBytes()));
+    }
+
+    public void printSummary(PrintStream out, long elapsedNanos) {
+        List<FileMetrics> all = new ArrayList<>(files);
+
+        if (all.isEmpty()) {
+            out.println("No files converted");
+            return;
+        }
+
+        long bytes = all.stream().mapToLong(FileMetrics::bytes).sum();
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+
+        out.println();
+        out.printf("%-14s %d%n", "Files", all.size());
+        out.printf("%-14s %s%n", "Input", formatBytes(bytes));
+        out.printf("%-14s %d ms%n", "Elapsed", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        out.printf("%-14s %.1f files/s, %.2f MiB/s%n", "Throughput", all.size() / seconds, bytes / (1024.0 * 1024) / seconds);
+
+        List<FileMetrics> measured = all.stream().filter(file -> file.allocatedBytes() >= 0).toList();
+
+        if (!measured.isEmpty()) {
+            FileMetrics largest = measured.stream().max(Comparator.comparingLong(FileMetrics::allocatedBytes)).get();
+            long total = measured.stream().mapToLong(FileMetrics::allocatedBytes).sum();
+
+            out.printf("%-14s %s per file, max %s (%s)%n", "Allocation",
+                formatBytes(total / measured.size()), formatBytes(largest.allocatedBytes()), largest.file().getName());
+        }
+
+        out.println();
+        out.printf("%10s %10s %12s  %s%n", "Time (ms)", "Size", "Allocated", "Slowest files");
+
+        all.stream()
+            .sorted(Comparator.comparingLong(FileMetrics::nanos).reversed())
+            .limit(SLOWEST_FILES)
+            .forEach(file -> out.printf("%10.2f %10s %12s  %s%n",
+                file.nanos() / 1e6,
+                formatBytes(file.bytes()),
+                file.allocatedBytes() < 0 ? "-" : formatBytes(file.allocatedBytes()),
+                file.file().getPath()));
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KiB", bytes / 1024.0);
+        }
+
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024));
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (threads instanceof com.sun.management.ThreadMXBean hotspot && hotspot.isThreadAllocatedMemorySupported()) {
+            hotspot.setThreadAllocatedMemoryEnabled(true);
+            return hotspot;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,68 @@
+package org.aphronatus.msbt.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.MSBTUtils;
+
+import java.io.File;
+
+/**
+ * Flight recorder event for one file read or written by the codec. Recorded
+ * with e.g. {@code java -XX:StartFlightRecording=filename=jmsbt.jfr -jar jmsbt.jar ...}
+ * and shown by {@code jfr print --events org.aphronatus.msbt.File jmsbt.jfr}.
+ */
+@Name("org.aphronatus.msbt.File")
+@Label("MSBT File")
+@Category("jmsbt")
+@Description("Read or write of one MSBT, YAML or JSON Lines file")
+@StackTrace(false)
+public class MSBTFileEvent extends Event {
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Format")
+    String format;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Labels")
+    int labels;
+
+    @Label("Strings")
+    int strings;
+
+    /**
+     * Ends the event and commits it when a recording enables it, the file
+     * details are only looked up in that case.
+     */
+    public void complete(String operation, File file, MSBT msbt) {
+        end();
+
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.operation = operation;
+        this.path = file.getPath();
+        this.format = MSBTUtils.getExtension(file).replace(".", "");
+        this.bytes = file.length();
+        this.labels = msbt.getLabelCount();
+        this.strings = msbt.getStringTable().size();
+
+        commit();
+    }
+}
@@ -0,0 +1,59 @@
+package org.aphronatus.msbt.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.aphronatus.msbt.LabelGroup;
+import org.aphronatus.msbt.io.MSBTReference;
+
+import java.util.List;
+
+/**
+ * Flight recorder event for the decoding or encoding of one section of a
+ * binary MSBT file. Nested in the {@link MSBTFileEvent} of the file when the
+ * file is read or written through a path.
+ */
+@Name("org.aphronatus.msbt.Section")
+@Label("MSBT Section")
+@Category("jmsbt")
+@Description("Decoding or encoding of one section of a binary MSBT file")
+@StackTrace(false)
+public class MSBTSectionEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Section")
+    String section;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Entries")
+    @Description("Labels of a LBL1 section, strings of a TXT2 section")
+    int entries;
+
+    public void complete(String operation, String section, long bytes, List<LabelGroup> groups, List<String> texts) {
+        end();
+
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.operation = operation;
+        this.section = section;
+        this.bytes = bytes;
+        this.entries = switch (section) {
+            case MSBTReference.SECTION_LBL1 -> groups.stream().mapToInt(group -> group.getLabels().size()).sum();
+            case MSBTReference.SECTION_TXT2 -> texts.size();
+            default -> 0;
+        };
+
+        commit();
+    }
+}
@@ -0,0 +1,107 @@
+package org.aphronatus.msbt.sarc;
+
+import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.io.MSBTReference;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entries of a SARC archive by name, plus the byte order, hash key and data
+ * alignment used to write it back.
+ */
+public class SARCArchive {
+    private final Map<String, SARCEntry> entries = new LinkedHashMap<>();
+
+    private ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
+    private int hashKey = SARCReference.HASH_KEY;
+    private int alignment = SARCReference.DEFAULT_ALIGNMENT;
+
+    public Collection<SARCEntry> getEntries() {
+        return entries.values();
+    }
+
+    public List<String> getNames() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    public SARCEntry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void put(SARCEntry entry) {
+        entries.put(entry.getName(), entry);
+    }
+
+    /**
+     * Replaces or adds the entry with an MSBT, it is encoded when the archive is written.
+     */
+    public void putMSBT(String name, MSBT msbt) {
+        put(SARCEntry.of(name, msbt));
+    }
+
+    public SARCEntry remove(String name) {
+        return entries.remove(name);
+    }
+
+    /**
+     * Decodes the MSBT stored under the name, or returns null if there is no such entry.
+     */
+    public MSBT readMSBT(String name) throws IOException {
+        SARCEntry entry = entries.get(name);
+        return entry != null ? entry.getMSBT() : null;
+    }
+
+    public List<String> getMSBTNames() {
+        List<String> names = new ArrayList<>();
+
+        for (String name : entries.keySet()) {
+            if (name.endsWith(MSBTReference.MSBT_FILE_EXTENSION)) {
+                names.add(name);
+            }
+        }
+
+        return names;
+    }
+
+    public ByteOrder getByteOrder() {
+        return byteOrder;
+    }
+
+    public void setByteOrder(ByteOrder byteOrder) {
+        this.byteOrder = byteOrder;
+    }
+
+    public int getHashKey() {
+        return hashKey;
+    }
+
+    public void setHashKey(int hashKey) {
+        this.hashKey = hashKey;
+    }
+
+    public int getAlignment() {
+        return alignment;
+    }
+
+    public void setAlignment(int alignment) {
+        if (alignment <= 0 || Integer.bitCount(alignment) != 1) {
+            throw new IllegalArgumentException("Alignment must be a power of two: " + alignment);
+        }
+
+        this.alignment = alignment;
+    }
+}
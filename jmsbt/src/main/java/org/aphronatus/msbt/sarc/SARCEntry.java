@@ -0,0 +1,59 @@
+package org.aphronatus.msbt.sarc;
+
+import org.aphronatus.msbt.MSBT;
+import org.aphronatus.msbt.io.reader.MSBTReaderFile;
+import org.aphronatus.msbt.io.writer.MSBTWriterFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A file of a SARC archive: either raw bytes, e.g. a view over the archive it
+ * was read from, or an {@link MSBT} that is only encoded when the archive is
+ * written.
+ */
+public class SARCEntry {
+    private final String name;
+    private final ByteBuffer data;
+    private final MSBT msbt;
+
+    private SARCEntry(String name, ByteBuffer data, MSBT msbt) {
+        this.name = name;
+        this.data = data;
+        this.msbt = msbt;
+    }
+
+    public static SARCEntry of(String name, ByteBuffer data) {
+        return new SARCEntry(name, data.slice(), null);
+    }
+
+    public static SARCEntry of(String name, MSBT msbt) {
+        return new SARCEntry(name, null, msbt);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isMSBT() {
+        return msbt != null;
+    }
+
+    /**
+     * Raw bytes of the entry, encoding the MSBT if the entry holds one.
+     */
+    public ByteBuffer getData() {
+        return msbt != null ? ByteBuffer.wrap(MSBTWriterFile.toByteArray(msbt)) : data.duplicate();
+    }
+
+    /**
+     * The MSBT of the entry, decoded from the raw bytes if needed.
+     */
+    public MSBT getMSBT() throws IOException {
+        return msbt != null ? msbt : MSBTReaderFile.fromBuffer(data);
+    }
+
+    public int getSize() {
+        return msbt != null ? MSBTWriterFile.encodedSize(msbt) : data.remaining();
+    }
+}
@@ -0,0 +1,161 @@
+package org.aphronatus.msbt.sarc;
+
+import com.github.luben.zstd.ZstdInputStream;
+import org.aphronatus.msbt.io.reader.MSBTReaderFile;
+import org.aphronatus.msbt.io.reader.MSBTVisitor;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads SARC archives. The entries are views over the archive buffer, nothing
+ * is copied until an entry is decoded. Archives compressed with zstd (.sarc.zs,
+ * as in the game files) are decompressed into memory first.
+ */
+public class SARCReader {
+    private static final int MAX_INFERRED_ALIGNMENT = 0x80;
+
+    /**
+     * Maps the file read-only, the entries stay valid after this returns.
+     * Files ending in .zs are decompressed instead.
+     */
+    public static SARCArchive fromFile(File file) throws IOException {
+        return fromFile(file, null);
+    }
+
+    /**
+     * Same as {@link #fromFile(File)}, a .zs file is decompressed with the
+     * zstd dictionary it was compressed with (null for none).
+     */
+    public static SARCArchive fromFile(File file, byte[] zstdDictionary) throws IOException {
+        if (file.getName().endsWith(SARCReference.ZSTD_FILE_EXTENSION)) {
+            try (var zstd = new ZstdInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (zstdDictionary != null) {
+                    zstd.setDict(zstdDictionary);
+                }
+
+                return fromBuffer(ByteBuffer.wrap(zstd.readAllBytes()));
+            }
+        }
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            return fromBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads the archive starting at the buffer position, the buffer itself is not modified.
+     */
+    public static SARCArchive fromBuffer(ByteBuffer buffer) throws IOException {
+        try {
+            return read(buffer.slice());
+        }
+        catch (RuntimeException e) {
+            throw new IOException("Error while reading SARC buffer", e);
+        }
+    }
+
+    /**
+     * Reads every MSBT entry of the archive with the visitor, in archive order.
+     */
+    public static void acceptMSBT(SARCArchive archive, MSBTVisitor visitor) throws IOException {
+        for (String name : archive.getMSBTNames()) {
+            MSBTReaderFile.accept(archive.getEntry(name).getData(), visitor);
+        }
+    }
+
+    private static SARCArchive read(ByteBuffer buffer) throws IOException {
+        checkMagic(buffer, 0, SARCReference.SARC_MAGIC);
+
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        short bom = buffer.getShort(0x06);
+
+        if (bom == SARCReference.BYTE_ORDER_MARK) {
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+        else if (bom == Short.reverseBytes(SARCReference.BYTE_ORDER_MARK)) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        else {
+            throw new IOException("Invalid SARC byte order mark: " + Integer.toHexString(bom & 0xFFFF));
+        }
+
+        int headerSize = Short.toUnsignedInt(buffer.getShort(0x04));
+        int dataOffset = buffer.getInt(0x0C);
+
+        int sfat = headerSize;
+        checkMagic(buffer, sfat, SARCReference.SFAT_MAGIC);
+
+        int sfatHeaderSize = Short.toUnsignedInt(buffer.getShort(sfat + 0x04));
+        int nodeCount = Short.toUnsignedInt(buffer.getShort(sfat + 0x06));
+        int hashKey = buffer.getInt(sfat + 0x08);
+
+        int nodes = sfat + sfatHeaderSize;
+        int sfnt = nodes + nodeCount * SARCReference.SFAT_NODE_SIZE;
+        checkMagic(buffer, sfnt, SARCReference.SFNT_MAGIC);
+
+        int names = sfnt + Short.toUnsignedInt(buffer.getShort(sfnt + 0x04));
+
+        SARCArchive archive = new SARCArchive();
+        archive.setByteOrder(buffer.order());
+        archive.setHashKey(hashKey);
+
+        int alignment = MAX_INFERRED_ALIGNMENT;
+
+        while (alignment > 1 && dataOffset % alignment != 0) {
+            alignment >>= 1;
+        }
+
+        for (int i = 0; i < nodeCount; i++) {
+            int node = nodes + i * SARCReference.SFAT_NODE_SIZE;
+            int attributes = buffer.getInt(node + 0x04);
+            int start = buffer.getInt(node + 0x08);
+            int end = buffer.getInt(node + 0x0C);
+
+            if ((attributes >>> 24) == 0) {
+                throw new IOException("SARC entry " + i + " has no name");
+            }
+
+            String name = readName(buffer, names + (attributes & 0xFFFFFF) * 4);
+            ByteBuffer data = buffer.slice(dataOffset + start, end - start);
+
+            while (alignment > 1 && start % alignment != 0) {
+                alignment >>= 1;
+            }
+
+            archive.put(SARCEntry.of(name, data));
+        }
+
+        archive.setAlignment(Math.max(alignment, 4));
+        return archive;
+    }
+
+    private static String readName(ByteBuffer buffer, int offset) {
+        int end = offset;
+
+        while (buffer.get(end) != 0) {
+            end++;
+        }
+
+        byte[] bytes = new byte[end - offset];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void checkMagic(ByteBuffer buffer, int offset, String magic) throws IOException {
+        byte[] bytes = new byte[4];
+        buffer.get(offset, bytes);
+
+        if (!magic.equals(new String(bytes, StandardCharsets.US_ASCII))) {
+            throw new IOException("Invalid SARC file, expected " + magic + " at 0x" + Integer.toHexString(offset));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.aphronatus.msbt.sarc;
+
+import java.nio.charset.StandardCharsets;
+
+public class SARCReference {
+    public static final String SARC_FILE_EXTENSION = ".sarc";
+    public static final String ZSTD_FILE_EXTENSION = ".zs";
+
+    public static final String SARC_MAGIC = "SARC";
+    public static final String SFAT_MAGIC = "SFAT";
+    public static final String SFNT_MAGIC = "SFNT";
+
+    public static final int SARC_HEADER_SIZE = 0x14;
+    public static final int SFAT_HEADER_SIZE = 0x0C;
+    public static final int SFAT_NODE_SIZE = 0x10;
+    public static final int SFNT_HEADER_SIZE = 0x08;
+
+    public static final short BYTE_ORDER_MARK = (short) 0xFEFF;
+    public static final short VERSION = 0x0100;
+
+    public static final int HASH_KEY = 0x65;
+
+    // Data alignment used for new archives, archives read from a file keep their own
+    public static final int DEFAULT_ALIGNMENT = 0x10;
+
+    /**
+     * Hash of an entry name, the SFAT nodes are sorted by it (unsigned). The
+     * bytes of the UTF-8 name are unsigned too, which matters for non-ASCII names.
+     */
+    public static int hash(String name, int key) {
+        int hash = 0;
+
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash = hash * key + (b & 0xFF);
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,193 @@
+package org.aphronatus.msbt.sarc;
+
+import org.aphronatus.msbt.io.writer.MSBTWriterFile;
+import org.aphronatus.msbt.utils.BufferPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes SARC archives in one pass. The layout is computed up front from the
+ * entry sizes ({@link MSBTWriterFile#encodedSize} for MSBT entries), then the
+ * headers and every entry are written in order, each MSBT encoded into the
+ * pooled buffer right before it goes to the channel.
+ */
+public class SARCWriter {
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(0x2000);
+
+    public static void writeFile(SARCArchive archive, File file) throws IOException {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(archive, channel);
+        }
+    }
+
+    /**
+     * Writes the archive to the stream, the stream is neither flushed nor closed.
+     */
+    public static void write(SARCArchive archive, OutputStream outputStream) throws IOException {
+        write(archive, Channels.newChannel(outputStream));
+    }
+
+    public static byte[] toByteArray(SARCArchive archive) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        write(archive, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Writes the archive to the channel, the channel is left open.
+     */
+    public static void write(SARCArchive archive, WritableByteChannel channel) throws IOException {
+        int hashKey = archive.getHashKey();
+        int alignment = archive.getAlignment();
+
+        List<Node> nodes = new ArrayList<>(archive.size());
+
+        for (SARCEntry entry : archive.getEntries()) {
+            nodes.add(new Node(entry, SARCReference.hash(entry.getName(), hashKey)));
+        }
+
+        nodes.sort(Comparator.comparingInt(node -> node.hash ^ Integer.MIN_VALUE));
+
+        // name table, every name null terminated and padded to 4 bytes
+        int namesSize = 0;
+
+        for (Node node : nodes) {
+            node.nameOffset = namesSize;
+            namesSize += align(node.name.length + 1, 4);
+        }
+
+        int headersSize = SARCReference.SARC_HEADER_SIZE + SARCReference.SFAT_HEADER_SIZE
+            + nodes.size() * SARCReference.SFAT_NODE_SIZE + SARCReference.SFNT_HEADER_SIZE + namesSize;
+        int dataOffset = align(headersSize, alignment);
+
+        int dataSize = 0;
+
+        for (Node node : nodes) {
+            node.start = align(dataSize, alignment);
+            node.end = node.start + node.entry.getSize();
+            dataSize = node.end;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(dataOffset).order(archive.getByteOrder());
+        writeHeaders(header, nodes, hashKey, dataOffset, dataOffset + dataSize);
+        header.flip();
+        writeFully(channel, header);
+
+        int position = 0;
+
+        for (Node node : nodes) {
+            writePadding(channel, node.start - position);
+            writeEntry(channel, node.entry);
+            position = node.end;
+        }
+    }
+
+    private static void writeHeaders(ByteBuffer buffer, List<Node> nodes, int hashKey, int dataOffset, int fileSize) {
+        buffer.put(SARCReference.SARC_MAGIC.getBytes(StandardCharsets.US_ASCII));
+        buffer.putShort((short) SARCReference.SARC_HEADER_SIZE);
+        buffer.putShort(SARCReference.BYTE_ORDER_MARK);
+        buffer.putInt(fileSize);
+        buffer.putInt(dataOffset);
+        buffer.putShort(SARCReference.VERSION);
+        buffer.putShort((short) 0);
+
+        buffer.put(SARCReference.SFAT_MAGIC.getBytes(StandardCharsets.US_ASCII));
+        buffer.putShort((short) SARCReference.SFAT_HEADER_SIZE);
+        buffer.putShort((short) nodes.size());
+        buffer.putInt(hashKey);
+
+        int previousHash = 0;
+        int collisions = 0;
+
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+
+            // entries with the same hash are told apart by the high byte of the attributes
+            collisions = i > 0 && node.hash == previousHash ? collisions + 1 : 1;
+            previousHash = node.hash;
+
+            buffer.putInt(node.hash);
+            buffer.putInt((collisions << 24) | (node.nameOffset / 4));
+            buffer.putInt(node.start);
+            buffer.putInt(node.end);
+        }
+
+        buffer.put(SARCReference.SFNT_MAGIC.getBytes(StandardCharsets.US_ASCII));
+        buffer.putShort((short) SARCReference.SFNT_HEADER_SIZE);
+        buffer.putShort((short) 0);
+
+        for (Node node : nodes) {
+            buffer.put(node.name);
+            buffer.position(buffer.position() + align(node.name.length + 1, 4) - node.name.length);
+        }
+
+        // the rest up to the data offset stays zero
+        buffer.position(buffer.limit());
+    }
+
+    private static void writeEntry(WritableByteChannel channel, SARCEntry entry) throws IOException {
+        if (!entry.isMSBT()) {
+            writeFully(channel, entry.getData());
+            return;
+        }
+
+        var msbt = entry.getMSBT();
+        var buffer = BufferPool.acquire(MSBTWriterFile.encodedSize(msbt), ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            MSBTWriterFile.encode(msbt, buffer);
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+        finally {
+            BufferPool.release(buffer);
+        }
+    }
+
+    private static void writePadding(WritableByteChannel channel, int length) throws IOException {
+        while (length > 0) {
+            ByteBuffer zeros = ZEROS.duplicate().limit(Math.min(length, ZEROS.capacity()));
+            length -= zeros.remaining();
+            writeFully(channel, zeros);
+        }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int align(int size, int alignment) {
+        return (size + alignment - 1) & -alignment;
+    }
+
+    private static class Node {
+        private final SARCEntry entry;
+        private final byte[] name;
+        private final int hash;
+
+        private int nameOffset;
+        private int start;
+        private int end;
+
+        Node(SARCEntry entry, int hash) {
+            this.entry = entry;
+            this.name = entry.getName().getBytes(StandardCharsets.UTF_8);
+            this.hash = hash;
+        }
+    }
+}
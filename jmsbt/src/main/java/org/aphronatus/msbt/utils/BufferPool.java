@@ -0,0 +1,58 @@
+package org.aphronatus.msbt.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small shared pool of direct buffers for encoding files before they are
+ * written to a channel. Every buffer taken with {@link #acquire} must be given
+ * back with {@link #release} in a finally block and not used afterwards.
+ *
+ * The pool is shared instead of per thread so virtual threads, which run one
+ * file each, reuse the same few buffers instead of allocating a new direct
+ * buffer every time.
+ */
+public class BufferPool {
+    // Larger buffers are allocated on the heap and not kept around
+    private static final int MAX_RETAINED_CAPACITY = 8 * 1024 * 1024;
+    private static final int MIN_CAPACITY = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = Runtime.getRuntime().availableProcessors();
+
+    private static final Queue<ByteBuffer> BUFFERS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    public static ByteBuffer acquire(int capacity, ByteOrder order) {
+        if (capacity > MAX_RETAINED_CAPACITY) {
+            return ByteBuffer.allocate(capacity).order(order);
+        }
+
+        ByteBuffer buffer = BUFFERS.poll();
+
+        if (buffer != null) {
+            POOLED.decrementAndGet();
+        }
+
+        // a buffer too small for this file is dropped, the pool grows to the largest files
+        if (buffer == null || buffer.capacity() < capacity) {
+            buffer = ByteBuffer.allocateDirect(Math.max(MIN_CAPACITY, Integer.highestOneBit(capacity - 1) << 1));
+        }
+
+        return buffer.clear().limit(capacity).order(order);
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            return;
+        }
+
+        if (POOLED.incrementAndGet() > MAX_POOLED_BUFFERS) {
+            POOLED.decrementAndGet();
+            return;
+        }
+
+        BUFFERS.offer(buffer);
+    }
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 
 public class ByteBufferFile {
@@ -21,6 +22,25 @@ public class ByteBufferFile {
         this(path, "r", ByteOrder.LITTLE_ENDIAN);
     }
 
+    public ByteBufferFile(ByteBuffer buffer, ByteOrder order) {
+        fileBuffer = buffer.order(order);
+    }
+
+    /**
+     * Maps the file read-only instead of copying it into the heap, the mapping
+     * stays valid after the channel is closed until the buffer is collected.
+     */
+    public static ByteBufferFile map(String path, ByteOrder order) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            FileChannel channel = file.getChannel();
+            return new ByteBufferFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), order);
+        }
+    }
+
+    public static ByteBufferFile map(String path) throws IOException {
+        return map(path, ByteOrder.LITTLE_ENDIAN);
+    }
+
     public int readInt() {
         return fileBuffer.getInt();
     }
@@ -39,6 +59,16 @@ public class ByteBufferFile {
         return ByteBuffer.wrap(read(length)).order(order);
     }
 
+    /**
+     * Same as {@link #read(int, ByteOrder)} but returns a view over the file buffer, no bytes are copied.
+     */
+    public ByteBuffer slice(int length, ByteOrder order) {
+        int position = fileBuffer.position();
+        ByteBuffer slice = fileBuffer.slice(position, length).order(order);
+        fileBuffer.position(position + length);
+        return slice;
+    }
+
     public String readString(int length, Charset charset) {
         byte[] bytes = new byte[length];
         fileBuffer.get(bytes);
@@ -0,0 +1,86 @@
+package org.aphronatus.msbt.utils;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Walks a directory tree with {@link Files#walkFileTree} and reports every
+ * regular file whose name ends with one of the given extensions, together
+ * with its size read from the attributes of the walk. No extensions means
+ * every file. An excluded directory inside the tree is not walked into.
+ */
+public class FileScanner {
+
+    @FunctionalInterface
+    public interface Listener {
+        void onFile(Path path, long size) throws IOException;
+    }
+
+    @Value
+    public static class ScannedFile {
+        Path path;
+        long size;
+    }
+
+    public static void scan(Path root, Listener listener, String... extensions) throws IOException {
+        scan(root, null, listener, extensions);
+    }
+
+    public static void scan(Path root, Path excludedDirectory, Listener listener, String... extensions) throws IOException {
+        Path excluded = excludedDirectory != null ? excludedDirectory.toAbsolutePath().normalize() : null;
+
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (excluded != null && !dir.equals(root) && dir.toAbsolutePath().normalize().equals(excluded)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile() && matches(file, extensions)) {
+                    listener.onFile(file, attrs.size());
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    public static List<ScannedFile> list(Path root, String... extensions) throws IOException {
+        return list(root, null, extensions);
+    }
+
+    public static List<ScannedFile> list(Path root, Path excludedDirectory, String... extensions) throws IOException {
+        List<ScannedFile> files = new ArrayList<>();
+        scan(root, excludedDirectory, (path, size) -> files.add(new ScannedFile(path, size)), extensions);
+        return files;
+    }
+
+    private static boolean matches(Path file, String[] extensions) {
+        if (extensions.length == 0) {
+            return true;
+        }
+
+        String name = file.getFileName().toString();
+
+        for (String extension : extensions) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
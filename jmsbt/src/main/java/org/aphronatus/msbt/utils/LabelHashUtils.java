@@ -0,0 +1,89 @@
+package org.aphronatus.msbt.utils;
+
+import org.aphronatus.msbt.Label;
+import org.aphronatus.msbt.LabelGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The LBL1 label groups are the buckets of a hash table, a label is stored in
+ * the group {@code hash(name) % groupCount}.
+ */
+public class LabelHashUtils {
+    private static final int HASH_MULTIPLIER = 0x492;
+
+    public static int hash(String label) {
+        int hash = 0;
+
+        for (int i = 0; i < label.length(); i++) {
+            hash = hash * HASH_MULTIPLIER + label.charAt(i);
+        }
+
+        return hash;
+    }
+
+    public static int bucket(String label, int bucketCount) {
+        return Integer.remainderUnsigned(hash(label), bucketCount);
+    }
+
+    public static List<LabelGroup> createGroups(int bucketCount) {
+        List<LabelGroup> groups = new ArrayList<>(bucketCount);
+
+        for (int i = 0; i < bucketCount; i++) {
+            var group = new LabelGroup();
+            group.setId(i);
+            group.setLabels(new ArrayList<>());
+
+            groups.add(group);
+        }
+
+        return groups;
+    }
+
+    /**
+     * Returns the groups unchanged when every label is already in its bucket,
+     * otherwise a copy where the misplaced labels were moved to the end of
+     * their bucket. The bucket count is kept.
+     */
+    public static List<LabelGroup> placeLabels(List<LabelGroup> groups) {
+        if (isPlaced(groups)) {
+            return groups;
+        }
+
+        List<LabelGroup> placed = createGroups(groups.size());
+
+        // Labels already in place keep their relative order
+        for (int i = 0; i < groups.size(); i++) {
+            for (Label label : groups.get(i).getLabels()) {
+                if (bucket(label.getName(), groups.size()) == i) {
+                    placed.get(i).add(label);
+                }
+            }
+        }
+
+        for (int i = 0; i < groups.size(); i++) {
+            for (Label label : groups.get(i).getLabels()) {
+                int bucket = bucket(label.getName(), groups.size());
+
+                if (bucket != i) {
+                    placed.get(bucket).add(label);
+                }
+            }
+        }
+
+        return placed;
+    }
+
+    private static boolean isPlaced(List<LabelGroup> groups) {
+        for (int i = 0; i < groups.size(); i++) {
+            for (Label label : groups.get(i).getLabels()) {
+                if (bucket(label.getName(), groups.size()) != i) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,30 @@
+package org.aphronatus.msbt.utils;
+
+import java.io.PrintStream;
+
+/**
+ * Verbose output of the command line tool, printed only with -v. Messages go
+ * to standard output unless a command that writes its data there switches them
+ * to standard error with {@link #setStream}.
+ */
+public class Log {
+    private static volatile boolean verbose = false;
+    private static volatile PrintStream stream = System.out;
+
+    public static void setVerbose(boolean verbose) {
+        Log.verbose = verbose;
+    }
+
+    public static boolean isVerbose() {
+        return verbose;
+    }
+
+    public static void setStream(PrintStream stream) {
+        Log.stream = stream;
+    }
+
+    public static void log(String str) {
+        if (verbose)
+            stream.println(str);
+    }
+}
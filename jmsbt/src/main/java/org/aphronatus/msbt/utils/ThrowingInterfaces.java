@@ -13,6 +13,11 @@ public class ThrowingInterfaces {
         void accept(T t) throws SQLException;
     }
 
+    @FunctionalInterface
+    public interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
     @FunctionalInterface
     public interface ThrowingConsumer<T> {
         void accept(T t) throws Exception;
@@ -0,0 +1,65 @@
+package org.aphronatus.msbt.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes UTF-16LE text ranges of a section through a char view of its bytes.
+ * Each range is copied once into a reusable scratch array, so the only
+ * allocation per text is the resulting String.
+ *
+ * Not thread-safe, create one decoder per section.
+ */
+public class UTF16LEDecoder {
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private char[] scratch = new char[256];
+
+    public UTF16LEDecoder(ByteBuffer sectionData) {
+        this.bytes = sectionData.duplicate().position(0).order(ByteOrder.LITTLE_ENDIAN);
+        this.chars = bytes.asCharBuffer();
+    }
+
+    /**
+     * @param start byte offset of the first code unit, relative to the section start
+     * @param end   byte offset after the last code unit
+     */
+    public String decode(int start, int end) {
+        int length = end - start;
+
+        if (((start | length) & 1) != 0) {
+            // Misaligned text, let the charset handle the odd byte
+            return StandardCharsets.UTF_16LE.decode(bytes.slice(start, length)).toString();
+        }
+
+        int charLength = length >> 1;
+
+        if (scratch.length < charLength) {
+            scratch = new char[Math.max(charLength, scratch.length * 2)];
+        }
+
+        chars.get(start >> 1, scratch, 0, charLength);
+        return new String(scratch, 0, charLength);
+    }
+
+    /**
+     * Decodes the range straight into the target array, which needs
+     * {@code (end - start + 1) / 2} chars free after the offset.
+     *
+     * @return the number of chars written
+     */
+    public int decode(int start, int end, char[] target, int offset) {
+        int length = end - start;
+
+        if (((start | length) & 1) != 0) {
+            String text = decode(start, end);
+            text.getChars(0, text.length(), target, offset);
+            return text.length();
+        }
+
+        chars.get(start >> 1, target, offset, length >> 1);
+        return length >> 1;
+    }
+}
@@ -1,21 +1,47 @@
 package org.aphronatus.msbt.utils;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+import org.aphronatus.msbt.MSBT;
 
+/**
+ * Shared YAML mapper, built once when the class is loaded so it can be used
+ * from the conversion workers without synchronisation. ObjectReader and
+ * ObjectWriter are immutable and safe to share between threads.
+ *
+ * Streams passed to the mapper are never closed by Jackson, the caller owns them.
+ */
 public class YAMLObjectMapper {
 
-    private static ObjectMapper mapper;
+    private static final ObjectMapper MAPPER = createMapper();
+    private static final ObjectReader MSBT_READER = MAPPER.readerFor(MSBT.class);
+    private static final ObjectWriter MSBT_WRITER = MAPPER.writerFor(MSBT.class);
 
-    public static ObjectMapper getMapper() {
-        if (mapper == null) {
-            YAMLFactory yamlFactory = new YAMLFactory();
-            yamlFactory.disable(YAMLGenerator.Feature.SPLIT_LINES);
-            mapper = new ObjectMapper(yamlFactory);
-        }
+    private static ObjectMapper createMapper() {
+        YAMLFactory yamlFactory = new YAMLFactory();
+        yamlFactory.disable(YAMLGenerator.Feature.SPLIT_LINES);
 
+        ObjectMapper mapper = new ObjectMapper(yamlFactory);
+        mapper.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        mapper.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 
         return mapper;
     }
+
+    public static ObjectMapper getMapper() {
+        return MAPPER;
+    }
+
+    public static ObjectReader getMSBTReader() {
+        return MSBT_READER;
+    }
+
+    public static ObjectWriter getMSBTWriter() {
+        return MSBT_WRITER;
+    }
 }
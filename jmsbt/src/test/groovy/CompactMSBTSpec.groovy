@@ -0,0 +1,63 @@
+import org.aphronatus.msbt.CompactMSBT
+import org.aphronatus.msbt.MSBT
+import org.aphronatus.msbt.MSBTUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class CompactMSBTSpec extends Specification {
+
+    static PATH_MSBT_EXAMPLES = "src/test/resources/msbt_examples/"
+
+    @Unroll
+    void "compact model writes the original file: #file"() {
+        setup:
+        File msbtFile = new File(PATH_MSBT_EXAMPLES + file)
+
+        when:
+        MSBT msbt = MSBTUtils.readFromMSBTFile(msbtFile)
+        CompactMSBT compact = CompactMSBT.fromFile(msbtFile)
+
+        then:
+        compact.asStringTable() == msbt.stringTable
+        MSBTUtils.writeMSBTBytes(compact.toMSBT()) == msbtFile.bytes
+        MSBTUtils.writeMSBTBytes(CompactMSBT.of(msbt).toMSBT()) == msbtFile.bytes
+
+        and:
+        msbt.labelsFilled.every { group ->
+            group.labels.every { label -> compact.findText(label.name) == label.value }
+        }
+
+        where:
+        file << FileTestSpec.getFileList(PATH_MSBT_EXAMPLES)
+    }
+
+    void "converted model can be modified"() {
+        setup:
+        MSBT msbt = CompactMSBT.fromFile(new File(PATH_MSBT_EXAMPLES + "ActorMsg/Attachment.msbt")).toMSBT()
+        String label = msbt.labelGroups.find { !it.labels.isEmpty() }.labels[0].name
+
+        when:
+        msbt.setText(label, "Texto alterado")
+        msbt.setText("Novo_Label_00", "Novo texto")
+
+        then:
+        msbt.findText(label) == "Texto alterado"
+        msbt.findText("Novo_Label_00") == "Novo texto"
+    }
+
+    void "groups are taken in list order whatever their ids"() {
+        setup:
+        MSBT msbt = MSBTUtils.readFromMSBTFile(new File(PATH_MSBT_EXAMPLES + "ActorMsg/Attachment.msbt"))
+        msbt.labelGroups.eachWithIndex { group, i -> group.id = i * 10 + 5 }
+
+        when:
+        CompactMSBT compact = CompactMSBT.of(msbt)
+
+        then:
+        compact.groupCount() == msbt.labelGroups.size()
+        compact.labelCount() == msbt.labelCount
+        msbt.labelsFilled.every { group ->
+            group.labels.every { label -> compact.findText(label.name) == label.value }
+        }
+    }
+}
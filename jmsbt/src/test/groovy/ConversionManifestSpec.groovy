@@ -0,0 +1,148 @@
+import org.aphronatus.msbt.convert.ConversionManifest
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class ConversionManifestSpec extends Specification {
+
+    @TempDir
+    File tempDir
+
+    File input
+    File output
+
+    void setup() {
+        input = new File(tempDir, "Staff.msbt")
+        output = new File(tempDir, "out/Staff.yaml")
+        output.parentFile.mkdirs()
+
+        input.text = "original input"
+        output.text = "converted output"
+        input.lastModified = 1_000_000
+        output.lastModified = 2_000_000
+
+        ConversionManifest manifest = ConversionManifest.load(output.parentFile, ".yaml")
+        manifest.record("Staff.msbt", ConversionManifest.hashInput(input), output)
+        manifest.save()
+    }
+
+    ConversionManifest reload(String format = ".yaml") {
+        ConversionManifest.load(output.parentFile, format)
+    }
+
+    void "unchanged files are up to date"() {
+        expect:
+        reload().isUpToDate("Staff.msbt", input, output)
+    }
+
+    void "input with the same size and modification time is not hashed again"() {
+        setup: 'same size, other content, timestamp restored'
+        input.text = "changed! input"
+        input.lastModified = 1_000_000
+
+        expect:
+        reload().isUpToDate("Staff.msbt", input, output)
+    }
+
+    void "input with a new timestamp but the same content is up to date and keeps the new timestamp"() {
+        setup:
+        input.lastModified = 5_000_000
+        ConversionManifest manifest = reload()
+
+        when:
+        boolean upToDate = manifest.isUpToDate("Staff.msbt", input, output)
+        manifest.save()
+
+        then:
+        upToDate
+
+        when: 'the next run does not hash it again'
+        input.text = "changed! input"
+        input.lastModified = 5_000_000
+
+        then:
+        reload().isUpToDate("Staff.msbt", input, output)
+    }
+
+    void "input with new content is converted again"() {
+        setup:
+        input.text = content
+        input.lastModified = 5_000_000
+
+        expect:
+        !reload().isUpToDate("Staff.msbt", input, output)
+
+        where:
+        content << ["changed! input", "a longer changed input"]
+    }
+
+    void "missing or modified output is converted again"() {
+        setup:
+        change.call(output)
+
+        expect:
+        !reload().isUpToDate("Staff.msbt", input, output)
+
+        where:
+        change << [
+            { File file -> file.delete() },
+            { File file -> file.text = "converted output, edited"; file.lastModified = 2_000_000 },
+            { File file -> file.lastModified = 3_000_000 }
+        ]
+    }
+
+    void "unknown files, another output name or another format are converted again"() {
+        expect:
+        !reload().isUpToDate("Other.msbt", input, output)
+        !reload().isUpToDate("Staff.msbt", input, new File(output.parentFile, "Staff.jsonl"))
+        !reload(".jsonl").isUpToDate("Staff.msbt", input, output)
+    }
+
+    void "files not checked in a run are dropped from the manifest"() {
+        setup:
+        reload().save()
+
+        expect:
+        !reload().isUpToDate("Staff.msbt", input, output)
+    }
+
+    void "a corrupt manifest is ignored"() {
+        setup:
+        new File(output.parentFile, ConversionManifest.FILE_NAME).text = "{ not json"
+
+        when:
+        ConversionManifest manifest = reload()
+
+        then:
+        !manifest.isUpToDate("Staff.msbt", input, output)
+    }
+
+    void "input changed while it was converted is converted again"() {
+        setup:
+        ConversionManifest manifest = reload()
+        ConversionManifest.Entry hashed = ConversionManifest.hashInput(input)
+
+        when: 'the input is edited after it was hashed and read'
+        input.text = "edited during conversion"
+        input.lastModified = 5_000_000
+        manifest.record("Staff.msbt", hashed, output)
+        manifest.save()
+
+        then:
+        !reload().isUpToDate("Staff.msbt", input, output)
+    }
+
+    void "the tool version identifies the build"() {
+        expect:
+        ConversionManifest.toolVersion ==~ /.+\+[0-9a-f]{64}/
+        ConversionManifest.toolVersion == ConversionManifest.toolVersion
+    }
+
+    void "a manifest written by another build is ignored"() {
+        setup:
+        File manifestFile = new File(output.parentFile, ConversionManifest.FILE_NAME)
+        manifestFile.text = manifestFile.text.replace(ConversionManifest.toolVersion, "dev+0000")
+
+        expect:
+        !reload().isUpToDate("Staff.msbt", input, output)
+    }
+}
@@ -0,0 +1,151 @@
+import org.aphronatus.msbt.convert.ConversionScheduler
+import org.aphronatus.msbt.utils.ThrowingInterfaces.ThrowingConsumer
+import org.aphronatus.msbt.utils.ThrowingInterfaces.ThrowingRunnable
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class ConversionSchedulerSpec extends Specification {
+
+    void "a failing file does not stop the others and is listed in the report"() {
+        setup:
+        def scheduler = new ConversionScheduler(Executors.newFixedThreadPool(4), 4, 1024)
+        def done = Collections.synchronizedList([])
+
+        (1..20).each { scheduler.submit(new File("file" + it + ".msbt"), it) }
+        scheduler.complete()
+
+        when:
+        def report = scheduler.run({ File file ->
+            if (file.name == "file7.msbt") {
+                throw new IOException("broken file")
+            }
+
+            if (file.name == "file13.msbt") {
+                throw new InternalError("Invalid MSBT file")
+            }
+
+            done << file.name
+        } as ThrowingConsumer<File>)
+
+        then:
+        report.submitted == 20
+        report.converted == 18
+        !report.successful
+        report.failures*.file*.name.sort() == ["file13.msbt", "file7.msbt"]
+        report.failures.find { it.file.name == "file7.msbt" }.error.message == "broken file"
+        done.size() == 18
+        !done.contains("file7.msbt")
+    }
+
+    void "files are converted largest first"() {
+        setup:
+        def scheduler = new ConversionScheduler(Executors.newSingleThreadExecutor(), 1, 1024)
+        def order = []
+
+        [3, 10, 1, 7, 7].eachWithIndex { size, i -> scheduler.submit(new File("file" + i), size) }
+        scheduler.complete()
+
+        when:
+        scheduler.run({ File file -> order << file.name } as ThrowingConsumer<File>)
+
+        then: 'ties keep the submission order'
+        order == ["file1", "file3", "file4", "file0", "file2"]
+    }
+
+    void "files in flight stay under the byte bound, larger files run alone"() {
+        setup:
+        def scheduler = new ConversionScheduler(Executors.newFixedThreadPool(8), 8, 100)
+        def sizes = [:]
+        def lock = new Object()
+        long inFlight = 0
+        long maxInFlight = 0
+        int running = 0
+        int maxRunning = 0
+        boolean largeRanAlone = true
+
+        (1..12).each { sizes["small" + it] = 40L }
+        sizes["large"] = 500L
+        sizes.each { name, size -> scheduler.submit(new File(name), size) }
+        scheduler.complete()
+
+        when:
+        def report = scheduler.run({ File file ->
+            long weight = Math.min(sizes[file.name], 100)
+
+            synchronized (lock) {
+                inFlight += weight
+                running++
+                maxInFlight = Math.max(maxInFlight, inFlight)
+                maxRunning = Math.max(maxRunning, running)
+
+                if (file.name == "large" && running > 1) {
+                    largeRanAlone = false
+                }
+            }
+
+            Thread.sleep(20)
+
+            synchronized (lock) {
+                if (file.name == "large" && running > 1) {
+                    largeRanAlone = false
+                }
+
+                inFlight -= weight
+                running--
+            }
+        } as ThrowingConsumer<File>)
+
+        then:
+        report.successful
+        report.converted == 13
+        maxInFlight == 100
+
+        and: 'two small files at most, the large one alone'
+        maxRunning == 2
+        largeRanAlone
+    }
+
+    void "files submitted by a scan are converted while the scan runs"() {
+        setup:
+        def scheduler = new ConversionScheduler(Executors.newFixedThreadPool(2), 2, 1024)
+        def firstConverted = new CountDownLatch(1)
+        def done = Collections.synchronizedList([])
+
+        when:
+        def report = scheduler.run({
+            scheduler.submit(new File("first"), 1)
+            // the scan only goes on once a worker converted the first file
+            assert firstConverted.await(5, TimeUnit.SECONDS)
+            (1..5).each { scheduler.submit(new File("file" + it), it) }
+        } as ThrowingRunnable, { File file ->
+            done << file.name
+            firstConverted.countDown()
+        } as ThrowingConsumer<File>)
+
+        then:
+        report.successful
+        report.submitted == 6
+        done[0] == "first"
+        done.toSorted() == ["file1", "file2", "file3", "file4", "file5", "first"]
+    }
+
+    void "a failed scan is thrown once the files it submitted are done"() {
+        setup:
+        def scheduler = new ConversionScheduler(Executors.newFixedThreadPool(2), 2, 1024)
+        def done = Collections.synchronizedList([])
+
+        when:
+        scheduler.run({
+            scheduler.submit(new File("file1"), 1)
+            throw new IOException("unreadable directory")
+        } as ThrowingRunnable, { File file -> done << file.name } as ThrowingConsumer<File>)
+
+        then:
+        def e = thrown(IOException)
+        e.cause.message == "unreadable directory"
+        done == ["file1"]
+    }
+}
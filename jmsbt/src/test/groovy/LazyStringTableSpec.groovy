@@ -0,0 +1,71 @@
+import org.aphronatus.msbt.MSBT
+import org.aphronatus.msbt.MSBTUtils
+import org.aphronatus.msbt.io.reader.LazyStringTable
+import org.aphronatus.msbt.io.reader.MSBTReaderOptions
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class LazyStringTableSpec extends Specification {
+
+    static PATH_MSBT_EXAMPLES = "src/test/resources/msbt_examples/"
+
+    @Unroll
+    void "lazy string table matches the eager one: #file"() {
+        setup:
+        File msbtFile = new File(PATH_MSBT_EXAMPLES + file)
+
+        when:
+        MSBT eager = MSBTUtils.readFromMSBTFile(msbtFile)
+        MSBT lazy = MSBTUtils.readFromMSBTFile(msbtFile, MSBTReaderOptions.lazy())
+
+        then:
+        lazy.stringTable instanceof LazyStringTable
+        lazy.stringTable.size() == eager.stringTable.size()
+
+        and: 'texts are decoded the same in any order'
+        for (int i = eager.stringTable.size() - 1; i >= 0; i--) {
+            assert lazy.stringTable.get(i) == eager.stringTable.get(i)
+        }
+
+        lazy.stringTable == eager.stringTable
+
+        and: 'the lazy table writes the same file'
+        MSBTUtils.writeMSBTBytes(lazy) == msbtFile.bytes
+
+        where:
+        file << FileTestSpec.getFileList(PATH_MSBT_EXAMPLES)
+    }
+
+    void "texts added after reading are appended to the table"() {
+        setup:
+        File msbtFile = new File(PATH_MSBT_EXAMPLES + "ActorMsg/Attachment.msbt")
+        MSBT eager = MSBTUtils.readFromMSBTFile(msbtFile)
+        MSBT lazy = MSBTUtils.readFromMSBTFile(msbtFile, MSBTReaderOptions.lazy())
+        int size = eager.stringTable.size()
+
+        when:
+        lazy.stringTable.get(0)
+        lazy.stringTable.add("Novo texto")
+        eager.stringTable.add("Novo texto")
+        lazy.stringTable.set(size - 1, "Texto alterado")
+        eager.stringTable.set(size - 1, "Texto alterado")
+
+        then:
+        lazy.stringTable.size() == size + 1
+        lazy.stringTable.get(size) == "Novo texto"
+        lazy.stringTable.get(size - 1) == "Texto alterado"
+        lazy.stringTable == eager.stringTable
+        MSBTUtils.writeMSBTBytes(lazy) == MSBTUtils.writeMSBTBytes(eager)
+    }
+
+    void "texts can not be inserted before the end of the table"() {
+        setup:
+        MSBT lazy = MSBTUtils.readFromMSBTFile(new File(PATH_MSBT_EXAMPLES + "ActorMsg/Attachment.msbt"), MSBTReaderOptions.lazy())
+
+        when:
+        lazy.stringTable.add(0, "Novo texto")
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+}
@@ -0,0 +1,152 @@
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.aphronatus.msbt.MSBT
+import org.aphronatus.msbt.MSBTUtils
+import org.aphronatus.msbt.diff.MSBTChange
+import org.aphronatus.msbt.diff.MSBTDiff
+import spock.lang.Specification
+import spock.lang.TempDir
+import spock.lang.Unroll
+
+import java.nio.charset.StandardCharsets
+
+class MSBTDiffSpec extends Specification {
+
+    static PATH_MSBT_EXAMPLES = "src/test/resources/msbt_examples/"
+
+    static ObjectMapper MAPPER = new ObjectMapper()
+
+    @TempDir
+    File tempDir
+
+    File oldDirectory
+    File newDirectory
+
+    void setup() {
+        oldDirectory = new File(tempDir, "old")
+        newDirectory = new File(tempDir, "new")
+
+        ["ActorMsg/Attachment", "StaffRollMsg/Staff"].each {
+            copy(it + ".msbt", oldDirectory)
+            copy(it + ".msbt", newDirectory)
+        }
+    }
+
+    void copy(String file, File directory) {
+        File target = new File(directory, file)
+        target.parentFile.mkdirs()
+        target.bytes = new File(PATH_MSBT_EXAMPLES + file).bytes
+    }
+
+    MSBT read(File directory, String file) {
+        MSBTUtils.readFromMSBTFile(new File(directory, file))
+    }
+
+    void "identical files are skipped without changes"() {
+        when:
+        MSBTDiff.Result result = MSBTDiff.diff(oldDirectory, newDirectory, "2")
+
+        then:
+        result.changes.isEmpty()
+        result.failures.isEmpty()
+        result.skipped == 2
+    }
+
+    void "added and removed files are reported by name without extension"() {
+        setup:
+        copy("ActorMsg/Boss.msbt", newDirectory)
+        new File(newDirectory, "StaffRollMsg/Staff.msbt").delete()
+
+        when:
+        MSBTDiff.Result result = MSBTDiff.diff(oldDirectory, newDirectory, "2")
+
+        then:
+        result.changes == [
+            new MSBTChange(MSBTChange.Type.FILE_ADDED, "ActorMsg/Boss", null, null, null),
+            new MSBTChange(MSBTChange.Type.FILE_REMOVED, "StaffRollMsg/Staff", null, null, null)
+        ]
+        result.skipped == 1
+    }
+
+    void "added, removed and changed labels are reported"() {
+        setup:
+        MSBT msbt = read(newDirectory, "ActorMsg/Attachment.msbt")
+        def labels = msbt.labelGroups.collectMany { it.labels }
+        def changed = labels[0]
+        def removed = labels[1]
+        String oldText = msbt.stringTable[changed.tableIndex]
+        String removedText = msbt.stringTable[removed.tableIndex]
+
+        msbt.setText(changed.name, "Texto alterado")
+        msbt.setText("Added_00", "Texto novo")
+        msbt.labelGroups.find { it.labels.contains(removed) }.labels.remove(removed)
+        MSBTUtils.writeMSBTFile(msbt, new File(newDirectory, "ActorMsg/Attachment.msbt"))
+
+        when:
+        MSBTDiff.Result result = MSBTDiff.diff(oldDirectory, newDirectory, "2")
+
+        then:
+        result.changes.toSet() == [
+            new MSBTChange(MSBTChange.Type.TEXT_CHANGED, "ActorMsg/Attachment", changed.name, oldText, "Texto alterado"),
+            new MSBTChange(MSBTChange.Type.LABEL_ADDED, "ActorMsg/Attachment", "Added_00", null, "Texto novo"),
+            new MSBTChange(MSBTChange.Type.LABEL_REMOVED, "ActorMsg/Attachment", removed.name, removedText, null)
+        ] as Set
+        result.changes.size() == 3
+        result.skipped == 1
+    }
+
+    void "an MSBT file is compared with its YAML conversion"() {
+        setup:
+        File msbtFile = new File(newDirectory, "ActorMsg/Attachment.msbt")
+        MSBT msbt = MSBTUtils.readFromMSBTFile(msbtFile)
+        msbt.setText(msbt.labelGroups.find { !it.labels.isEmpty() }.labels[0].name, "Texto alterado")
+        MSBTUtils.writeFile(msbt, new File(newDirectory, "ActorMsg/Attachment.yaml"))
+        msbtFile.delete()
+
+        MSBTUtils.writeFile(read(newDirectory, "StaffRollMsg/Staff.msbt"), new File(newDirectory, "StaffRollMsg/Staff.yaml"))
+        new File(newDirectory, "StaffRollMsg/Staff.msbt").delete()
+
+        when:
+        MSBTDiff.Result result = MSBTDiff.diff(oldDirectory, newDirectory, "2")
+
+        then: 'only the edited text, the other pair has the same labels and texts'
+        result.changes*.type == [MSBTChange.Type.TEXT_CHANGED]
+        result.changes[0].file == "ActorMsg/Attachment"
+        result.changes[0].newText == "Texto alterado"
+        result.skipped == 0
+    }
+
+    @Unroll
+    void "two files with the same name in one directory are an error: #directory"() {
+        setup:
+        File duplicated = new File(tempDir, directory)
+        MSBTUtils.writeFile(read(duplicated, "ActorMsg/Attachment.msbt"), new File(duplicated, "ActorMsg/Attachment.yaml"))
+
+        when:
+        MSBTDiff.diff(oldDirectory, newDirectory, "2")
+
+        then:
+        def e = thrown(IOException)
+        (e.message + " " + e.cause?.message).contains("More than one file for ActorMsg/Attachment")
+
+        where:
+        directory << ["old", "new"]
+    }
+
+    void "changes are written as JSON Lines"() {
+        setup:
+        def changes = [
+            new MSBTChange(MSBTChange.Type.FILE_ADDED, "ActorMsg/Boss", null, null, null),
+            new MSBTChange(MSBTChange.Type.TEXT_CHANGED, "ActorMsg/Attachment", "Label_00", "antigo \"texto\"", "novo\ntexto 😀")
+        ]
+        def outputStream = new ByteArrayOutputStream()
+
+        when:
+        MSBTDiff.write(changes, outputStream)
+        List<String> lines = outputStream.toString(StandardCharsets.UTF_8).readLines()
+
+        then:
+        lines.size() == 2
+        MAPPER.readValue(lines[0], Map) == [type: "FILE_ADDED", file: "ActorMsg/Boss"]
+        MAPPER.readValue(lines[1], Map) == [type: "TEXT_CHANGED", file: "ActorMsg/Attachment", label: "Label_00", old: "antigo \"texto\"", new: "novo\ntexto 😀"]
+    }
+}
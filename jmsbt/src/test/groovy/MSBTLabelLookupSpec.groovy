@@ -0,0 +1,135 @@
+import org.aphronatus.msbt.Label
+import org.aphronatus.msbt.MSBT
+import org.aphronatus.msbt.MSBTUtils
+import org.aphronatus.msbt.io.MSBTReference
+import org.aphronatus.msbt.utils.LabelHashUtils
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.ByteBuffer
+
+class MSBTLabelLookupSpec extends Specification {
+
+    static PATH_MSBT_EXAMPLES = "src/test/resources/msbt_examples/"
+
+    @TempDir
+    File tempDir
+
+    MSBT msbt = MSBTUtils.readFromMSBTFile(new File(PATH_MSBT_EXAMPLES + "ActorMsg/Attachment.msbt"))
+
+    void "finds the text of every label"() {
+        expect:
+        msbt.labelGroups.every { group ->
+            group.labels.every { label -> msbt.findText(label.name) == msbt.stringTable[label.tableIndex] }
+        }
+    }
+
+    void "unknown labels have no text"() {
+        expect:
+        msbt.findText("DoesNotExist_00") == null
+    }
+
+    void "replacing a text keeps the label count"() {
+        setup:
+        Label label = msbt.labelGroups.find { !it.labels.isEmpty() }.labels[0]
+        int labels = msbt.labelCount
+        int texts = msbt.stringTable.size()
+
+        when:
+        msbt.setText(label.name, "Texto traduzido")
+
+        then:
+        msbt.findText(label.name) == "Texto traduzido"
+        msbt.stringTable[label.tableIndex] == "Texto traduzido"
+        msbt.labelCount == labels
+        msbt.stringTable.size() == texts
+    }
+
+    void "new labels are added to their bucket"() {
+        when:
+        msbt.setText("Novo_Label_00", "Novo texto")
+
+        then:
+        msbt.findText("Novo_Label_00") == "Novo texto"
+        msbt.labelGroups[LabelHashUtils.bucket("Novo_Label_00", msbt.labelGroups.size())].labels*.name.contains("Novo_Label_00")
+    }
+
+    void "labels outside of their bucket are moved to it when the groups are set"() {
+        setup:
+        int bucket = LabelHashUtils.bucket("Misplaced_00", msbt.labelGroups.size())
+        def groups = msbt.labelGroups
+        def wrongGroup = groups[(bucket + 1) % groups.size()]
+
+        def label = new Label()
+        label.name = "Misplaced_00"
+        label.tableIndex = msbt.stringTable.size()
+
+        msbt.stringTable.add("Texto original")
+        wrongGroup.add(label)
+        int labels = msbt.labelCount
+
+        when:
+        msbt.labelGroups = groups
+        msbt.setText("Misplaced_00", "Texto alterado")
+
+        then:
+        msbt.findText("Misplaced_00") == "Texto alterado"
+        msbt.labelCount == labels
+        msbt.labelGroups[bucket].labels*.name.count { it == "Misplaced_00" } == 1
+        msbt.labelGroups.sum { it.labels*.name.count { it == "Misplaced_00" } } == 1
+
+        when: 'the file is written and read back'
+        MSBT written = MSBTUtils.readFromMSBTBuffer(ByteBuffer.wrap(MSBTUtils.writeMSBTBytes(msbt)))
+
+        then:
+        written.labelGroups[bucket].labels*.name.count { it == "Misplaced_00" } == 1
+        written.findText("Misplaced_00") == "Texto alterado"
+    }
+
+    void "groups already in place are kept as they are"() {
+        setup:
+        def groups = msbt.labelGroups
+
+        when:
+        msbt.labelGroups = groups
+
+        then:
+        msbt.labelGroups.is(groups)
+    }
+
+    void "misplaced labels in a YAML file are found"() {
+        setup:
+        File yaml = new File(tempDir, "Attachment.yaml")
+        MSBTUtils.writeFile(msbt, yaml)
+        // move the first label to the next group, as a hand edit would
+        def groups = msbt.labelGroups
+        int from = groups.findIndexOf { !it.labels.isEmpty() }
+        def moved = groups[from].labels.remove(0)
+        groups[(from + 1) % groups.size()].labels.add(0, moved)
+        MSBTUtils.writeFile(msbt, yaml)
+
+        when:
+        MSBT read = MSBTUtils.readFromFile(yaml)
+
+        then:
+        read.findText(moved.name) == read.stringTable[moved.tableIndex]
+        read.labelGroups[from].labels*.name.contains(moved.name)
+    }
+
+    void "labels can be added to a file without labels"() {
+        setup:
+        MSBT empty = new MSBT()
+
+        when:
+        empty.setText("Primeiro_00", "Primeiro")
+        empty.setText("Segundo_00", "Segundo")
+
+        then:
+        empty.labelGroups.size() == MSBTReference.LABEL_HASH_BUCKETS
+        empty.labelCount == 2
+        empty.stringTable == ["Primeiro", "Segundo"]
+        empty.findText("Primeiro_00") == "Primeiro"
+        empty.findText("Segundo_00") == "Segundo"
+        empty.labelGroups[LabelHashUtils.bucket("Primeiro_00", MSBTReference.LABEL_HASH_BUCKETS)].labels*.name == ["Primeiro_00"]
+    }
+}
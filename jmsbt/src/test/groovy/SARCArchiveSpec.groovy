@@ -0,0 +1,149 @@
+import org.aphronatus.msbt.MSBTUtils
+import org.aphronatus.msbt.sarc.SARCArchive
+import org.aphronatus.msbt.sarc.SARCEntry
+import org.aphronatus.msbt.sarc.SARCReader
+import org.aphronatus.msbt.sarc.SARCReference
+import org.aphronatus.msbt.sarc.SARCWriter
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+class SARCArchiveSpec extends Specification {
+
+    static PATH_MSBT_EXAMPLES = "src/test/resources/msbt_examples/"
+
+    @TempDir
+    File tempDir
+
+    static SARCArchive exampleArchive() {
+        SARCArchive archive = new SARCArchive()
+
+        FileTestSpec.getFileList(PATH_MSBT_EXAMPLES).each { file ->
+            archive.put(SARCEntry.of(file, ByteBuffer.wrap(new File(PATH_MSBT_EXAMPLES + file).bytes)))
+        }
+
+        return archive
+    }
+
+    static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()]
+        buffer.duplicate().get(bytes)
+        return bytes
+    }
+
+    static List<Map> readNodes(byte[] sarc, ByteOrder order) {
+        ByteBuffer buffer = ByteBuffer.wrap(sarc).order(order)
+        int nodeCount = Short.toUnsignedInt(buffer.getShort(SARCReference.SARC_HEADER_SIZE + 0x06))
+        int nodes = SARCReference.SARC_HEADER_SIZE + SARCReference.SFAT_HEADER_SIZE
+
+        (0..<nodeCount).collect { i ->
+            int node = nodes + i * SARCReference.SFAT_NODE_SIZE
+            [hash: buffer.getInt(node), attributes: buffer.getInt(node + 0x04), start: buffer.getInt(node + 0x08)]
+        }
+    }
+
+    void "archive of the examples is read back byte for byte"() {
+        setup:
+        SARCArchive archive = exampleArchive()
+        File file = new File(tempDir, "Msg_USen.Product.sarc")
+
+        when:
+        SARCWriter.writeFile(archive, file)
+        SARCArchive read = SARCReader.fromFile(file)
+
+        then:
+        read.size() == archive.size()
+        read.names.sort() == archive.names.sort()
+        archive.entries.every { entry -> bytes(read.getEntry(entry.name).data) == bytes(entry.data) }
+
+        and: 'the archive read back is written the same way'
+        SARCWriter.toByteArray(read) == file.bytes
+    }
+
+    void "MSBT entries are encoded to the same bytes as the original files"() {
+        setup:
+        SARCArchive raw = exampleArchive()
+        SARCArchive decoded = new SARCArchive()
+
+        raw.names.each { name -> decoded.putMSBT(name, MSBTUtils.readFromMSBTFile(new File(PATH_MSBT_EXAMPLES + name))) }
+
+        expect:
+        SARCWriter.toByteArray(decoded) == SARCWriter.toByteArray(raw)
+    }
+
+    void "SFAT nodes are sorted by the unsigned name hash"() {
+        setup:
+        SARCArchive archive = exampleArchive()
+
+        when:
+        byte[] sarc = SARCWriter.toByteArray(archive)
+        List<Map> nodes = readNodes(sarc, ByteOrder.LITTLE_ENDIAN)
+        List<Integer> hashes = nodes*.hash
+
+        then:
+        ByteBuffer.wrap(sarc).order(ByteOrder.LITTLE_ENDIAN).getInt(SARCReference.SARC_HEADER_SIZE + 0x08) == 0x65
+        nodes.size() == archive.size()
+        hashes.collect { Integer.toUnsignedLong(it) } == hashes.collect { Integer.toUnsignedLong(it) }.sort()
+        hashes as Set == archive.names.collect { SARCReference.hash(it, SARCReference.HASH_KEY) } as Set
+
+        and: 'entry data is aligned'
+        nodes.every { it.start % archive.alignment == 0 }
+    }
+
+    void "archives are written and read in both byte orders"() {
+        setup:
+        SARCArchive archive = exampleArchive()
+        archive.byteOrder = order
+
+        when:
+        byte[] sarc = SARCWriter.toByteArray(archive)
+        SARCArchive read = SARCReader.fromBuffer(ByteBuffer.wrap(sarc))
+
+        then:
+        sarc[6] == bom[0]
+        sarc[7] == bom[1]
+        read.byteOrder == order
+        read.hashKey == SARCReference.HASH_KEY
+        archive.entries.every { entry -> bytes(read.getEntry(entry.name).data) == bytes(entry.data) }
+        SARCWriter.toByteArray(read) == sarc
+
+        where:
+        order                   | bom
+        ByteOrder.LITTLE_ENDIAN | [(byte) 0xFF, (byte) 0xFE]
+        ByteOrder.BIG_ENDIAN    | [(byte) 0xFE, (byte) 0xFF]
+    }
+
+    void "entries with the same hash are numbered in the high byte of the attributes"() {
+        setup: 'two names with the hash 0x2689CED3'
+        SARCArchive archive = new SARCArchive()
+        archive.put(SARCEntry.of("Msg/Other.msbt", ByteBuffer.wrap([1, 2, 3] as byte[])))
+        archive.put(SARCEntry.of("zZsptBwC.msbt", ByteBuffer.wrap([4, 5] as byte[])))
+        archive.put(SARCEntry.of("gebzOSaH.msbt", ByteBuffer.wrap([6] as byte[])))
+
+        when:
+        byte[] sarc = SARCWriter.toByteArray(archive)
+        List<Map> colliding = readNodes(sarc, ByteOrder.LITTLE_ENDIAN).findAll { it.hash == 0x2689CED3 }
+        SARCArchive read = SARCReader.fromBuffer(ByteBuffer.wrap(sarc))
+
+        then:
+        SARCReference.hash("zZsptBwC.msbt", SARCReference.HASH_KEY) == SARCReference.hash("gebzOSaH.msbt", SARCReference.HASH_KEY)
+        colliding.collect { it.attributes >>> 24 } == [1, 2]
+        readNodes(sarc, ByteOrder.LITTLE_ENDIAN).findAll { it.hash != 0x2689CED3 }.every { (it.attributes >>> 24) == 1 }
+
+        and:
+        bytes(read.getEntry("zZsptBwC.msbt").data) == [4, 5] as byte[]
+        bytes(read.getEntry("gebzOSaH.msbt").data) == [6] as byte[]
+    }
+
+    void "name hash reads the UTF-8 bytes as unsigned"() {
+        expect:
+        SARCReference.hash(entryName, SARCReference.HASH_KEY) == expected
+
+        where:
+        entryName            | expected
+        "Mensagem_ção.msbt"  | Integer.parseUnsignedInt("C6958787", 16)
+        "ActorMsg/Élan.msbt" | Integer.parseUnsignedInt("F583B09A", 16)
+    }
+}
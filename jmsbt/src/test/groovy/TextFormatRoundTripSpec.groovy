@@ -0,0 +1,105 @@
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.aphronatus.msbt.MSBT
+import org.aphronatus.msbt.MSBTUtils
+import spock.lang.Specification
+import spock.lang.TempDir
+import spock.lang.Unroll
+
+import java.nio.charset.StandardCharsets
+
+class TextFormatRoundTripSpec extends Specification {
+
+    static PATH_MSBT_EXAMPLES = "src/test/resources/msbt_examples/"
+
+    static ObjectMapper MAPPER = new ObjectMapper()
+
+    @TempDir
+    File tempDir
+
+    @Unroll
+    void "msbt converted to #extension and back is byte identical: #file"() {
+        setup:
+        File msbtFile = new File(PATH_MSBT_EXAMPLES + file)
+        File textFile = new File(tempDir, "file" + extension)
+        File newMSBTFile = new File(tempDir, "file.msbt")
+
+        when:
+        MSBTUtils.writeFile(MSBTUtils.readFromMSBTFile(msbtFile), textFile)
+        MSBTUtils.writeMSBTFile(MSBTUtils.readFromFile(textFile), newMSBTFile)
+
+        then:
+        newMSBTFile.bytes == msbtFile.bytes
+
+        where:
+        [file, extension] << [FileTestSpec.getFileList(PATH_MSBT_EXAMPLES), [".jsonl", ".yaml"]].combinations()
+    }
+
+    @Unroll
+    void "JSON Lines has a header, one line per label and the unreferenced texts last: #file"() {
+        setup:
+        MSBT msbt = MSBTUtils.readFromMSBTFile(new File(PATH_MSBT_EXAMPLES + file))
+        File jsonlFile = new File(tempDir, "file.jsonl")
+
+        when:
+        MSBTUtils.writeMSBTJSONLinesFile(msbt, jsonlFile)
+        List<Map> lines = jsonlFile.readLines(StandardCharsets.UTF_8.name()).collect { MAPPER.readValue(it, Map) }
+        Set<Integer> referenced = msbt.labelGroups.collectMany { it.labels*.tableIndex } as Set
+
+        then:
+        lines[0] == [byteOrderMark: msbt.byteOrderMark, version: msbt.version, sectionSize: msbt.sectionSize,
+                     groups: msbt.labelGroups.size(), texts: msbt.stringTable.size()]
+
+        and: 'labels in group order'
+        lines.subList(1, 1 + msbt.labelCount) == msbt.labelGroups.withIndex().collectMany { group, position ->
+            group.labels.collect { [group: position, label: it.name, index: it.tableIndex, text: msbt.stringTable[it.tableIndex]] }
+        }
+
+        and: 'then the texts without a label'
+        lines.subList(1 + msbt.labelCount, lines.size()) == (0..<msbt.stringTable.size()).findAll { !referenced.contains(it) }.collect {
+            [index: it, text: msbt.stringTable[it]]
+        }
+
+        where:
+        file << FileTestSpec.getFileList(PATH_MSBT_EXAMPLES)
+    }
+
+    void "texts without a label survive the JSON Lines round trip"() {
+        setup:
+        MSBT msbt = MSBTUtils.readFromMSBTFile(new File(PATH_MSBT_EXAMPLES + "ActorMsg/Attachment.msbt"))
+        msbt.stringTable.add("Texto sem label\ncom \"aspas\", \\ e 😀")
+        int index = msbt.stringTable.size() - 1
+
+        File jsonlFile = new File(tempDir, "file.jsonl")
+
+        when:
+        MSBTUtils.writeMSBTJSONLinesFile(msbt, jsonlFile)
+        List<String> lines = jsonlFile.readLines(StandardCharsets.UTF_8.name())
+        MSBT read = MSBTUtils.readFromMSBTJSONLinesFile(jsonlFile)
+
+        then:
+        MAPPER.readValue(lines.last(), Map) == [index: index, text: msbt.stringTable[index]]
+        read.stringTable == msbt.stringTable
+        read.labelGroups == msbt.labelGroups
+        MSBTUtils.writeMSBTBytes(read) == MSBTUtils.writeMSBTBytes(msbt)
+    }
+
+    void "groups are written by position whatever their ids"() {
+        setup:
+        MSBT msbt = MSBTUtils.readFromMSBTFile(new File(PATH_MSBT_EXAMPLES + "ActorMsg/Attachment.msbt"))
+        byte[] original = MSBTUtils.writeMSBTBytes(msbt)
+        msbt.labelGroups.eachWithIndex { group, i -> group.id = 100 + i * 2 }
+
+        File jsonlFile = new File(tempDir, "file.jsonl")
+
+        when:
+        MSBTUtils.writeMSBTJSONLinesFile(msbt, jsonlFile)
+        List<Map> lines = jsonlFile.readLines(StandardCharsets.UTF_8.name()).collect { MAPPER.readValue(it, Map) }
+        MSBT read = MSBTUtils.readFromMSBTJSONLinesFile(jsonlFile)
+
+        then:
+        lines.findAll { it.containsKey("group") }.every { it.group < msbt.labelGroups.size() }
+        read.labelGroups*.id == (0..<msbt.labelGroups.size()).toList()
+        read.labelGroups*.labels == msbt.labelGroups*.labels
+        MSBTUtils.writeMSBTBytes(read) == original
+    }
+}
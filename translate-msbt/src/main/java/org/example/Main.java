@@ -2,11 +2,92 @@ package org.example;
 
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
+/**
+ * Database commands:
+ *
+ * <pre>
+ * ingest-msbt &lt;directory | archive.sarc | archive.sarc.zs&gt; [threads] [zstd dictionary]
+ * ingest-yaml &lt;directory&gt;
+ * export [--changed] &lt;directory&gt; [threads]
+ * migrate-schema
+ * </pre>
+ *
+ * ingest-msbt loads the labels of binary MSBT files into the database,
+ * ingest-yaml those of YAML files. export writes the translated texts into
+ * copies of the YAML files of the directory, in the sibling directory
+ * target_pt_br; with --changed only the files changed since the last export,
+ * see {@link WriteDatabase#updateChangedFiles}.
+ * migrate-schema adds the change tracking that {@link WriteDatabase#updateChangedFiles}
+ * needs; run it once, it locks labels_text while it runs.
+ *
+ * The database settings come from the db.* system properties, see
+ * {@link org.example.database.DatabaseConfig}.
+ */
 public class Main {
+    private static final String USAGE = """
+        Usage:
+          ingest-msbt <directory | archive.sarc | archive.sarc.zs> [threads] [zstd dictionary]
+          ingest-yaml <directory>
+          export [--changed] <directory> [threads]
+          migrate-schema""";
+
     public static void main(String[] args) throws IOException {
         //msbt_to_yaml();
         //yaml_to_msbt();
+
+        String command = args.length > 0 ? args[0] : "";
+
+        switch (command) {
+            case "ingest-msbt" -> {
+                if (args.length < 2) {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+
+                int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+                byte[] dictionary = args.length > 3 ? Files.readAllBytes(Path.of(args[3])) : null;
+
+                new WriteDatabase().insertFilesLinesFromMSBT(args[1], threads, dictionary);
+            }
+            case "ingest-yaml" -> {
+                if (args.length < 2) {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+
+                new WriteDatabase().insertFilesLinesByFolder(args[1]);
+            }
+            case "export" -> {
+                boolean changed = args.length > 1 && args[1].equals("--changed");
+                int folderIndex = changed ? 2 : 1;
+
+                if (args.length <= folderIndex) {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+
+                String folder = args[folderIndex];
+                int threads = args.length > folderIndex + 1 ? Integer.parseInt(args[folderIndex + 1]) : Runtime.getRuntime().availableProcessors();
+
+                if (changed) {
+                    new WriteDatabase().updateChangedFiles(folder, threads);
+                }
+                else {
+                    new WriteDatabase().updateFiles(folder, threads);
+                }
+            }
+            case "migrate-schema" -> {
+                new WriteDatabase().ensureSchema();
+                System.out.println("Schema of labels_text is up to date");
+            }
+            default -> {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -1,17 +1,41 @@
 package org.example;
 
-import com.google.gson.JsonObject;
-import kotlin.Pair;
+import org.aphronatus.msbt.Label;
 import org.aphronatus.msbt.LabelGroup;
+import org.aphronatus.msbt.MSBT;
 import org.aphronatus.msbt.MSBTUtils;
+import org.aphronatus.msbt.io.MSBTReference;
+import org.aphronatus.msbt.sarc.SARCArchive;
+import org.aphronatus.msbt.sarc.SARCReader;
+import org.aphronatus.msbt.utils.FileScanner;
 import org.example.database.EasyDatabaseManager;
+import org.example.database.LabelTextCopyWriter;
 import org.example.utils.StringUtils;
+import org.example.utils.ThrowingInterfaces.ThrowingSQLConsumer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -20,6 +44,15 @@ public class WriteDatabase {
 
     private static final EasyDatabaseManager easyDatabaseManager = new EasyDatabaseManager();
 
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final String WATERMARK_FILE_NAME = ".export-watermark";
+
+    // Rows of transactions still open when the watermark was taken commit with
+    // an earlier updated_at, files changed this long before it are exported again.
+    // Transactions open for longer are missed, see updateChangedFiles
+    private static final Duration WATERMARK_OVERLAP = Duration.ofMinutes(5);
+
 
     /**
      *
@@ -33,8 +66,10 @@ public class WriteDatabase {
              "table_index" INTEGER,
              "original_text" TEXT,
              "translated_text" TEXT,
-             "translated" BOOLEAN
+             "translated" BOOLEAN,
+             "updated_at" TIMESTAMPTZ NOT NULL DEFAULT now()
          )
+     * updated_at, its trigger and the deletion log are added by {@link #ensureSchema()}
      *
      * @param folder
      * @throws IOException
@@ -42,62 +77,373 @@ public class WriteDatabase {
     public void insertFilesLinesByFolder(String folder) throws IOException {
         List<File> files = readAllFiles(new File(folder));
 
-        List<JsonObject> jsonObjects = new ArrayList<>();
+        long rows;
 
-        for (int i = 0; i < files.size(); i++) {
-            File file = files.get(i);
-            String fileName = file.getName();
-            String filenamecolumn = fileName.substring(0, fileName.lastIndexOf('.'));
+        try {
+            rows = easyDatabaseManager.withConnection(connection -> {
+                var copyWriter = new LabelTextCopyWriter(connection);
 
-            List<LabelGroup> labelsFilled = MSBTUtils.readFromMSBTYAMLFile(file).getLabelsFilled();
+                try {
+                    for (File file : files) {
+                        insertFileLines(copyWriter, file);
+                    }
 
-            for (int j = 0; j < labelsFilled.size(); j++) {
-                var labelGroup = labelsFilled.get(j);
+                    copyWriter.close();
+                    return copyWriter.getRows();
+                }
+                catch (IOException e) {
+                    copyWriter.cancel();
+                    throw new UncheckedIOException(e);
+                }
+                catch (RuntimeException e) {
+                    copyWriter.cancel();
+                    throw e;
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        System.out.println("Inserted " + rows + " labels from " + files.size() + " files");
+    }
 
-                for (int k = 0; k < labelGroup.getLabels().size(); k++) {
-                    var label = labelGroup.getLabels().get(k);
+    /**
+     * Copies the labels of one file, only this file is held in memory.
+     */
+    private static void insertFileLines(LabelTextCopyWriter copyWriter, File file) throws IOException {
+        String fileName = file.getName();
+        String filenamecolumn = fileName.substring(0, fileName.lastIndexOf('.'));
 
-                    String sanitizeValue = StringUtils.sanitizeString(label.getValue());
+        MSBT msbt = MSBTUtils.readFromMSBTYAMLFile(file);
 
-                    var object = new JsonObject();
-                    object.addProperty("filename", filenamecolumn);
-                    object.addProperty("id_label", labelGroup.getId());
-                    object.addProperty("label", label.getName());
-                    object.addProperty("table_index", label.getTableIndex());
-                    object.addProperty("original_text", sanitizeValue);
-                    object.addProperty("translated_text", sanitizeValue);
-                    object.addProperty("translated", false);
+        for (LabelGroup labelGroup : msbt.getLabelGroups()) {
+            for (Label label : labelGroup.getLabels()) {
+                String sanitizeValue = StringUtils.sanitizeString(msbt.getStringTable().get(label.getTableIndex()));
 
-                    jsonObjects.add(object);
-                }
+                copyWriter.writeRow(filenamecolumn, labelGroup.getId(), label.getName(), label.getTableIndex(), sanitizeValue, sanitizeValue, false);
             }
         }
+    }
+
+
+    /**
+     * Loads labels_text straight from binary MSBT files, without the YAML step.
+     * The input is a directory of .msbt files, a .sarc archive or a .sarc.zs
+     * archive as found in the game files, see {@link Main}.
+     *
+     * Files are decoded and sanitized on a pool of threads while a single
+     * writer copies them to the database in file name order. At most a few
+     * decoded files per thread wait for the writer, so memory stays bounded.
+     * The filename column gets the .msbt file name, the same value a
+     * .msbt.yaml file gives in {@link #insertFilesLinesByFolder(String)}.
+     */
+    public void insertFilesLinesFromMSBT(String path, int threads) throws IOException {
+        insertFilesLinesFromMSBT(path, threads, null);
+    }
+
+    /**
+     * Same as {@link #insertFilesLinesFromMSBT(String, int)}, a .sarc.zs archive
+     * is decompressed with the zstd dictionary it was compressed with.
+     */
+    public void insertFilesLinesFromMSBT(String path, int threads, byte[] zstdDictionary) throws IOException {
+        File input = new File(path);
+        SARCArchive archive = null;
+        List<String> names;
+
+        if (input.isDirectory()) {
+            names = readAllFiles(input, MSBTReference.MSBT_FILE_EXTENSION).stream()
+                .map(File::getPath)
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        else {
+            archive = SARCReader.fromFile(input, zstdDictionary);
+            names = archive.getMSBTNames().stream().sorted().collect(Collectors.toList());
+        }
+
+        SARCArchive source = archive;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<ParsedFile>> decoding = new ArrayDeque<>();
+        Iterator<String> pending = names.iterator();
+        int window = threads * 4;
+
+        long start = System.nanoTime();
+        long rows;
+
+        try {
+            rows = easyDatabaseManager.withConnection(connection -> {
+                var copyWriter = new LabelTextCopyWriter(connection);
+
+                try {
+                    while (pending.hasNext() && decoding.size() < window) {
+                        String name = pending.next();
+                        decoding.add(executor.submit(() -> parseFile(source, name)));
+                    }
+
+                    while (!decoding.isEmpty()) {
+                        ParsedFile parsed = decoding.poll().get();
+
+                        if (pending.hasNext()) {
+                            String name = pending.next();
+                            decoding.add(executor.submit(() -> parseFile(source, name)));
+                        }
+
+                        for (LabelGroup labelGroup : parsed.msbt().getLabelGroups()) {
+                            for (Label label : labelGroup.getLabels()) {
+                                String sanitizeValue = parsed.msbt().getStringTable().get(label.getTableIndex());
+
+                                copyWriter.writeRow(parsed.filename(), labelGroup.getId(), label.getName(), label.getTableIndex(), sanitizeValue, sanitizeValue, false);
+                            }
+                        }
+                    }
+
+                    copyWriter.close();
+                    return copyWriter.getRows();
+                }
+                catch (IOException e) {
+                    copyWriter.cancel();
+                    throw new UncheckedIOException(e);
+                }
+                catch (ExecutionException e) {
+                    copyWriter.cancel();
+                    throw new UncheckedIOException(e.getCause() instanceof IOException io ? io : new IOException(e.getCause()));
+                }
+                catch (InterruptedException e) {
+                    copyWriter.cancel();
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("Ingestion interrupted"));
+                }
+                catch (RuntimeException e) {
+                    copyWriter.cancel();
+                    throw e;
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        System.out.println("Inserted " + rows + " labels from " + names.size() + " files in "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    private record ParsedFile(String filename, MSBT msbt) {}
+
+    /**
+     * Decodes one file of the directory or archive and sanitizes its texts.
+     */
+    private static ParsedFile parseFile(SARCArchive archive, String name) throws IOException {
+        MSBT msbt;
 
+        try {
+            msbt = archive != null ? archive.readMSBT(name) : MSBTUtils.readFromMSBTFileMapped(new File(name));
+        }
+        catch (IOException | InternalError e) {
+            throw new IOException("Could not read " + name, e);
+        }
+
+        List<String> sanitized = new ArrayList<>(msbt.getStringTable().size());
+
+        for (String text : msbt.getStringTable()) {
+            sanitized.add(StringUtils.sanitizeString(text));
+        }
+
+        msbt.setStringTable(sanitized);
+
+        // archive entries use '/' separated paths, which File splits on every platform
+        return new ParsedFile(new File(name).getName(), msbt);
+    }
+
+
+    public void updateFiles(String folder) throws IOException {
+        updateFiles(folder, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Writes the translated texts into copies of the YAML files of the folder,
+     * in the sibling folder target_pt_br.
+     */
+    public void updateFiles(String folder, int threads) throws IOException {
         String query = """
-                INSERT INTO "msbt_text"."labels_text" ("filename", "id_label", "label", "table_index", "original_text", "translated_text", "translated")
-                VALUES (?, ?, ?, ?, ?, ?, ?)
-                """;
+            SELECT "filename", "translated_text" FROM "msbt_text"."labels_text"
+            ORDER BY "filename", "table_index"
+            """;
+
+        int count = exportFiles(new File(folder), query, statement -> {}, threads);
 
+        System.out.println("Files updated: " + count);
+    }
 
-        easyDatabaseManager.batchUpdate(query, (statement -> {
-            for (int i = 0; i < jsonObjects.size(); i++) {
-                var object = jsonObjects.get(i);
-                statement.setString(1, object.get("filename").getAsString());
-                statement.setInt(2, object.get("id_label").getAsInt());
-                statement.setString(3, object.get("label").getAsString());
-                statement.setInt(4, object.get("table_index").getAsInt());
-                statement.setString(5, object.get("original_text").getAsString());
-                statement.setString(6, object.get("translated_text").getAsString());
-                statement.setBoolean(7, object.get("translated").getAsBoolean());
-                statement.addBatch();
+    /**
+     * One time setup for {@link #updateChangedFiles(String, int)}: adds the
+     * updated_at column to labels_text with the trigger that sets it on every
+     * update that changes the row, and the labels_text_deletions table that a
+     * trigger fills with the filename of deleted rows. Can be run again, but it
+     * takes an exclusive lock on labels_text, so it is not run by the export;
+     * see {@link Main}.
+     */
+    public void ensureSchema() {
+        String query = """
+            ALTER TABLE "msbt_text"."labels_text" ADD COLUMN IF NOT EXISTS "updated_at" TIMESTAMPTZ NOT NULL DEFAULT now();
+
+            CREATE INDEX IF NOT EXISTS "labels_text_updated_at_idx" ON "msbt_text"."labels_text" ("updated_at");
+
+            CREATE TABLE IF NOT EXISTS "msbt_text"."labels_text_deletions" (
+                "filename" TEXT NOT NULL,
+                "deleted_at" TIMESTAMPTZ NOT NULL DEFAULT clock_timestamp()
+            );
+
+            CREATE INDEX IF NOT EXISTS "labels_text_deletions_deleted_at_idx" ON "msbt_text"."labels_text_deletions" ("deleted_at");
+
+            CREATE OR REPLACE FUNCTION "msbt_text"."labels_text_log_deletions"() RETURNS trigger AS $$
+            BEGIN
+                INSERT INTO "msbt_text"."labels_text_deletions" ("filename")
+                SELECT DISTINCT "filename" FROM deleted_rows WHERE "filename" IS NOT NULL;
+                RETURN NULL;
+            END
+            $$ LANGUAGE plpgsql;
+
+            CREATE OR REPLACE FUNCTION "msbt_text"."labels_text_touch"() RETURNS trigger AS $$
+            BEGIN
+                NEW."updated_at" := clock_timestamp();
+                RETURN NEW;
+            END
+            $$ LANGUAGE plpgsql;
+
+            DO $$
+            BEGIN
+                IF NOT EXISTS (
+                    SELECT 1 FROM pg_trigger
+                    WHERE tgname = 'labels_text_touch' AND tgrelid = '"msbt_text"."labels_text"'::regclass
+                ) THEN
+                    CREATE TRIGGER "labels_text_touch" BEFORE UPDATE ON "msbt_text"."labels_text"
+                    FOR EACH ROW WHEN (OLD.* IS DISTINCT FROM NEW.*)
+                    EXECUTE FUNCTION "msbt_text"."labels_text_touch"();
+                END IF;
+
+                IF NOT EXISTS (
+                    SELECT 1 FROM pg_trigger
+                    WHERE tgname = 'labels_text_log_deletions' AND tgrelid = '"msbt_text"."labels_text"'::regclass
+                ) THEN
+                    CREATE TRIGGER "labels_text_log_deletions" AFTER DELETE ON "msbt_text"."labels_text"
+                    REFERENCING OLD TABLE AS deleted_rows
+                    FOR EACH STATEMENT
+                    EXECUTE FUNCTION "msbt_text"."labels_text_log_deletions"();
+                END IF;
+            END
+            $$;
+            """;
+
+        easyDatabaseManager.withConnection(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(query);
             }
-        }));
 
+            return null;
+        });
     }
 
+    public void updateChangedFiles(String folder) throws IOException {
+        updateChangedFiles(folder, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Same as {@link #updateFiles(String, int)}, but only the files with rows
+     * inserted, changed or deleted since the last export are written again.
+     * The time of the last export is kept in target_pt_br/.export-watermark;
+     * without it every file is written. Needs the schema of
+     * {@link #ensureSchema()}. TRUNCATE is not tracked, and a file whose rows
+     * were all deleted keeps its last exported copy.
+     *
+     * updated_at is the time a row was written, not the time its transaction
+     * committed. Each export looks back 5 minutes before the previous
+     * watermark to catch rows committed late. A change made in a transaction
+     * that was open for longer than that when the previous export started is
+     * missed until its file changes again. Run {@link #updateFiles(String, int)}
+     * after long running batch updates, or delete the watermark file.
+     */
+    public void updateChangedFiles(String folder, int threads) throws IOException {
+        checkSchema();
 
-    public void updateFiles(String folder) throws IOException {
         File folderFile = new File(folder);
+        Path watermarkFile = new File(folderFile.getParentFile(), "target_pt_br/" + WATERMARK_FILE_NAME).toPath();
+
+        // taken before the export, so changes made while it runs are exported next time
+        OffsetDateTime newWatermark = easyDatabaseManager.singleResult("SELECT now()", resultSet -> resultSet.getObject(1, OffsetDateTime.class));
+
+        if (!Files.exists(watermarkFile)) {
+            System.out.println("No export watermark, updating every file");
+            updateFiles(folder, threads);
+        }
+        else {
+            OffsetDateTime watermark = OffsetDateTime.parse(Files.readString(watermarkFile).trim());
+            OffsetDateTime since = watermark.minus(WATERMARK_OVERLAP);
+
+            String query = """
+                SELECT "filename", "translated_text" FROM "msbt_text"."labels_text"
+                WHERE "filename" IN (
+                    SELECT "filename" FROM "msbt_text"."labels_text" WHERE "updated_at" > ?
+                    UNION
+                    SELECT "filename" FROM "msbt_text"."labels_text_deletions" WHERE "deleted_at" > ?
+                )
+                ORDER BY "filename", "table_index"
+                """;
+
+            int count = exportFiles(folderFile, query, statement -> {
+                statement.setObject(1, since);
+                statement.setObject(2, since);
+            }, threads);
+
+            System.out.println("Files changed since " + watermark + " updated: " + count);
+        }
+
+        // deletions older than the next export looks back are not needed anymore
+        easyDatabaseManager.update("DELETE FROM \"msbt_text\".\"labels_text_deletions\" WHERE \"deleted_at\" <= ?",
+            statement -> statement.setObject(1, newWatermark.minus(WATERMARK_OVERLAP)));
+
+        Files.createDirectories(watermarkFile.getParent());
+        Path temp = Files.createTempFile(watermarkFile.getParent(), WATERMARK_FILE_NAME, ".tmp");
+
+        try {
+            Files.writeString(temp, newWatermark.toString());
+            Files.move(temp, watermarkFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Fails when {@link #ensureSchema()} was not run, without taking any lock
+     * on labels_text.
+     */
+    private static void checkSchema() {
+        Boolean ready = easyDatabaseManager.singleResult("""
+            SELECT count(*) = 2 FROM pg_trigger
+            WHERE tgrelid = to_regclass('"msbt_text"."labels_text"')
+            AND tgname IN ('labels_text_touch', 'labels_text_log_deletions')
+            """, resultSet -> resultSet.getBoolean(1));
+
+        if (!Boolean.TRUE.equals(ready)) {
+            throw new IllegalStateException("labels_text does not track changes yet, run migrate-schema once first");
+        }
+    }
+
+    /**
+     * Streams the rows of the query, which must return filename and
+     * translated_text ordered by filename and table_index, through a cursor of
+     * {@link #EXPORT_FETCH_SIZE} rows. The texts of a file are handed to the
+     * writer pool as soon as the next file starts, and at most two files per
+     * writer thread are held at a time, so memory is bounded by the largest
+     * file instead of the table.
+     *
+     * @return the number of files written
+     */
+    private int exportFiles(File folderFile, String query, ThrowingSQLConsumer<PreparedStatement> parameters, int threads) throws IOException {
         List<File> files = readAllFiles(folderFile);
 
         Map<String, File> fileByName = new HashMap<>();
@@ -112,84 +458,125 @@ public class WriteDatabase {
 
         System.out.println("Files loaded");
 
-        String query = """
-            SELECT * FROM "msbt_text"."labels_text"
-            """;
+        var targetFolder = new File(folderFile.getParentFile(), "target_pt_br");
 
-        List<JsonObject> jsonObjects = easyDatabaseManager.queryList(query, (resultSet -> {
-            var object = new JsonObject();
-            object.addProperty("filename", resultSet.getString("filename"));
-            object.addProperty("id_label", resultSet.getInt("id_label"));
-            object.addProperty("label", resultSet.getString("label"));
-            object.addProperty("table_index", resultSet.getInt("table_index"));
-            object.addProperty("original_text", resultSet.getString("original_text"));
-            object.addProperty("translated_text", resultSet.getString("translated_text"));
-            object.addProperty("translated", resultSet.getBoolean("translated"));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(threads * 2);
+        List<Future<?>> writes = new ArrayList<>();
+        AtomicInteger count = new AtomicInteger();
 
-            return object;
+        try {
+            easyDatabaseManager.withConnection(connection -> {
+                // pgjdbc only uses a cursor for the fetch size inside a transaction
+                connection.setAutoCommit(false);
 
-        }));
+                try (PreparedStatement statement = connection.prepareStatement(query)) {
+                    statement.setFetchSize(EXPORT_FETCH_SIZE);
+                    parameters.accept(statement);
 
-        System.out.println("Data loaded");
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        String currentFile = null;
+                        List<String> texts = new ArrayList<>();
 
-        Map<String, List<Pair<Integer, String>>> mapByFile = new HashMap<>();
+                        while (resultSet.next()) {
+                            String filename = resultSet.getString("filename");
 
-        for (JsonObject object : jsonObjects) {
-            var filename = object.get("filename").getAsString();
-            var tableIndex = object.get("table_index").getAsInt();
+                            if (!filename.equals(currentFile)) {
+                                if (currentFile != null) {
+                                    submitExport(executor, inFlight, writes, count, fileByName.get(currentFile), currentFile, targetFolder, texts);
+                                }
 
-            if (!mapByFile.containsKey(filename)) {
-                mapByFile.put(filename, new ArrayList<>());
-            }
+                                currentFile = filename;
+                                texts = new ArrayList<>();
+                            }
 
-            var modify = object.get("translated_text").getAsString();
-            var text = sanitizeStringToUTF16LE(modify);
+                            texts.add(resultSet.getString("translated_text"));
+                        }
 
-            mapByFile.get(filename).add(new Pair<>(tableIndex, text));
-        }
+                        if (currentFile != null) {
+                            submitExport(executor, inFlight, writes, count, fileByName.get(currentFile), currentFile, targetFolder, texts);
+                        }
+                    }
+                }
 
-        System.out.println("Data organized");
+                connection.commit();
+                return null;
+            });
 
-        // rewrite file in target folder
-        int count = 0;
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        }
+        catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export interrupted");
+        }
+        finally {
+            executor.shutdown();
+        }
 
-        for (var entry : mapByFile.entrySet()) {
-            var filename = entry.getKey();
-            var list = entry.getValue();
+        return count.get();
+    }
 
-            list.sort(Comparator.comparingInt(Pair::getFirst));
+    private static void submitExport(ExecutorService executor, Semaphore inFlight, List<Future<?>> writes, AtomicInteger count,
+                                     File file, String filename, File targetFolder, List<String> texts) throws SQLException {
+        if (file == null) {
+            System.out.println("No file for " + filename + ", skipped");
+            return;
+        }
 
-            var orderedList = list.stream().map(Pair::getSecond).collect(Collectors.toList());
+        try {
+            inFlight.acquire();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Export interrupted", e);
+        }
 
-            var file = fileByName.get(filename);
+        writes.add(executor.submit(() -> {
+            try {
+                writeTranslatedFile(file, targetFolder, texts);
 
-            var msbt = MSBTUtils.readFromMSBTYAMLFile(file);
-            msbt.setStringTable(orderedList);
+                if (count.incrementAndGet() % 100 == 0) {
+                    System.out.println("Files updated: " + count.get());
+                }
 
-            // get name and folder
-            var subfolderName = file.getParentFile().getName();
-            var fullname = subfolderName + "/" + file.getName();
+                return null;
+            }
+            finally {
+                inFlight.release();
+            }
+        }));
+    }
 
-            var targetFolder = new File(folderFile.getParentFile(), "target_pt_br");
+    /**
+     * Rewrites the string table of the YAML file with the texts, ordered by
+     * table index, into the same subfolder of the target folder.
+     */
+    private static void writeTranslatedFile(File file, File targetFolder, List<String> texts) throws IOException {
+        List<String> orderedList = new ArrayList<>(texts.size());
 
-            if (!targetFolder.exists()) {
-                targetFolder.mkdir();
-            }
+        for (String text : texts) {
+            orderedList.add(sanitizeStringToUTF16LE(text));
+        }
 
-            var fileTarget = new File(targetFolder, fullname);
+        var msbt = MSBTUtils.readFromMSBTYAMLFile(file);
+        msbt.setStringTable(orderedList);
 
-            if (!fileTarget.getParentFile().exists()) {
-                fileTarget.getParentFile().mkdirs();
-            }
+        // get name and folder
+        var subfolderName = file.getParentFile().getName();
+        var fullname = subfolderName + "/" + file.getName();
 
-            MSBTUtils.writeMSBTYAMLFile(msbt, fileTarget);
+        var fileTarget = new File(targetFolder, fullname);
 
-            if (count++ % 100 == 0) {
-                System.out.println("Files updated: " + count);
-            }
+        if (!fileTarget.getParentFile().exists()) {
+            fileTarget.getParentFile().mkdirs();
         }
 
-        System.out.println("Files updated");
+        MSBTUtils.writeMSBTYAMLFile(msbt, fileTarget);
     }
 
     private static String sanitizeStringToUTF16LE(String string) {
@@ -219,16 +606,10 @@ public class WriteDatabase {
     }
 
 
-    public static List<File> readAllFiles(File directory) {
-        List<File> files = new ArrayList<>();
-        for (File file : Objects.requireNonNull(directory.listFiles())) {
-            if (file.isDirectory()) {
-                files.addAll(readAllFiles(file));
-            } else {
-                files.add(file);
-            }
-        }
-        return files;
+    public static List<File> readAllFiles(File directory, String... extensions) throws IOException {
+        return FileScanner.list(directory.toPath(), extensions).stream()
+            .map(scannedFile -> scannedFile.getPath().toFile())
+            .collect(Collectors.toList());
     }
 
 }
\ No newline at end of file
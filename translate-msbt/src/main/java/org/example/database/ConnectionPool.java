@@ -0,0 +1,250 @@
+package org.example.database;
+
+import org.example.utils.ThrowingInterfaces.ThrowingSQLFunction;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Deque;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of JDBC connections. Connections are opened on demand up to
+ * {@link DatabaseConfig#getMaxPoolSize()}, callers above that wait up to the
+ * acquire timeout for a connection to be released.
+ *
+ * Idle connections are reused last in first out, so the busiest connections
+ * keep their server side prepared statements warm. A connection is validated
+ * when the work done with it failed, and before reuse when it sat idle for
+ * longer than {@link DatabaseConfig#getValidateAfterIdleMillis()}, since the
+ * server or a firewall may have dropped it meanwhile. Connections older than
+ * the max lifetime are closed instead of reused, and connections idle for
+ * longer than the idle timeout are closed the next time the pool is used.
+ * Connections left in a transaction are rolled back before going back to the
+ * pool.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DatabaseConfig config;
+    private final Properties driverProperties;
+
+    private final long validateAfterIdleNanos;
+    private final long idleTimeoutNanos;
+    private final long maxLifetimeNanos;
+
+    private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+    private volatile boolean closed = false;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquisitionNanos = new LongAdder();
+    private final LongAccumulator maxAcquisitionNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder created = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * Snapshot of the pool usage since it was created.
+     */
+    public record Stats(int open, int idle, int maxPoolSize, long acquisitions, long created, long discarded, long timeouts,
+                        double averageAcquisitionMillis, double maxAcquisitionMillis) {
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d connections (%d idle), %d acquisitions, wait avg %.3f ms max %.1f ms, %d opened, %d discarded, %d timeouts",
+                open, maxPoolSize, idle, acquisitions, averageAcquisitionMillis, maxAcquisitionMillis, created, discarded, timeouts);
+        }
+    }
+
+    private record PooledConnection(Connection connection, long openedNanos, long idleSinceNanos) {
+        PooledConnection idleSince(long nanos) {
+            return new PooledConnection(connection, openedNanos, nanos);
+        }
+    }
+
+    public ConnectionPool(DatabaseConfig config) {
+        if (config.getMaxPoolSize() < 1) {
+            throw new IllegalArgumentException("maxPoolSize must be at least 1");
+        }
+
+        this.config = config;
+        this.driverProperties = config.toDriverProperties();
+        this.permits = new Semaphore(config.getMaxPoolSize(), true);
+        this.validateAfterIdleNanos = TimeUnit.MILLISECONDS.toNanos(config.getValidateAfterIdleMillis());
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxLifetimeMillis());
+    }
+
+    /**
+     * Runs the function with a pooled connection, which must not be used
+     * after the function returns.
+     */
+    public <T> T withConnection(ThrowingSQLFunction<Connection, T> fn) throws SQLException {
+        PooledConnection pooled = acquire();
+        boolean failed = true;
+
+        try {
+            T result = fn.apply(pooled.connection());
+            failed = false;
+            return result;
+        }
+        finally {
+            release(pooled, failed);
+        }
+    }
+
+    private PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("No connection available after " + config.getAcquireTimeoutMillis()
+                    + " ms, all " + config.getMaxPoolSize() + " connections are in use");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection pooled;
+
+            while ((pooled = idle.pollFirst()) != null && !isUsable(pooled)) {
+                discard(pooled.connection());
+            }
+
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(config.getJdbcUrl(), driverProperties), System.nanoTime(), 0);
+                created.increment();
+            }
+
+            long elapsed = System.nanoTime() - start;
+            acquisitions.increment();
+            acquisitionNanos.add(elapsed);
+            maxAcquisitionNanos.accumulate(elapsed);
+
+            return pooled;
+        }
+        catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks an idle connection before it is handed out again.
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.nanoTime();
+
+        try {
+            if (isExpired(pooled, now) || pooled.connection().isClosed()) {
+                return false;
+            }
+
+            return now - pooled.idleSinceNanos() < validateAfterIdleNanos || pooled.connection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        }
+        catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeNanos > 0 && now - pooled.openedNanos() >= maxLifetimeNanos;
+    }
+
+    private void release(PooledConnection pooled, boolean failed) {
+        Connection connection = pooled.connection();
+        long now = System.nanoTime();
+
+        try {
+            if (closed || isExpired(pooled, now) || (failed && !connection.isValid(VALIDATION_TIMEOUT_SECONDS))) {
+                discard(connection);
+                return;
+            }
+
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+
+            idle.offerFirst(pooled.idleSince(now));
+            evictIdle(now);
+        }
+        catch (SQLException e) {
+            discard(connection);
+        }
+        finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the connections idle for longer than the idle timeout. They are
+     * at the end of the deque, since idle connections are reused from the front.
+     */
+    private void evictIdle(long now) {
+        PooledConnection oldest;
+
+        while ((oldest = idle.peekLast()) != null && now - oldest.idleSinceNanos() > idleTimeoutNanos) {
+            if (idle.removeLastOccurrence(oldest)) {
+                discard(oldest.connection());
+            }
+        }
+    }
+
+    private void discard(Connection connection) {
+        discarded.increment();
+
+        try {
+            connection.close();
+        }
+        catch (SQLException e) {
+            // already broken
+        }
+    }
+
+    public Stats getStats() {
+        long count = acquisitions.sum();
+        int idleCount = idle.size();
+
+        return new Stats(
+            config.getMaxPoolSize() - permits.availablePermits() + idleCount,
+            idleCount,
+            config.getMaxPoolSize(),
+            count,
+            created.sum(),
+            discarded.sum(),
+            timeouts.sum(),
+            count == 0 ? 0 : acquisitionNanos.sum() / 1e6 / count,
+            maxAcquisitionNanos.get() / 1e6
+        );
+    }
+
+    /**
+     * Closes the idle connections, connections in use are closed when released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        PooledConnection pooled;
+
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled.connection());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.database;
+
+import java.util.Arrays;
+
+/**
+ * One row in the COPY text format: columns separated by tabs, backslash
+ * escapes, {@code \N} for null and UTF-8 encoded, written into a byte buffer
+ * that is reused for every row.
+ */
+class CopyRow {
+    private byte[] bytes = new byte[4 * 1024];
+    private int length;
+
+    void clear() {
+        length = 0;
+    }
+
+    byte[] getBytes() {
+        return bytes;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    void appendText(String value) {
+        if (value == null) {
+            append('\\');
+            append('N');
+            return;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '\\' -> { append('\\'); append('\\'); }
+                case '\t' -> { append('\\'); append('t'); }
+                case '\n' -> { append('\\'); append('n'); }
+                case '\r' -> { append('\\'); append('r'); }
+                default -> {
+                    if (c < 0x80) {
+                        append(c);
+                    }
+                    else if (c < 0x800) {
+                        append((char) (0xC0 | (c >> 6)));
+                        append((char) (0x80 | (c & 0x3F)));
+                    }
+                    else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                        append((char) (0xF0 | (codePoint >> 18)));
+                        append((char) (0x80 | ((codePoint >> 12) & 0x3F)));
+                        append((char) (0x80 | ((codePoint >> 6) & 0x3F)));
+                        append((char) (0x80 | (codePoint & 0x3F)));
+                    }
+                    else if (Character.isSurrogate(c)) {
+                        // a lone surrogate is not valid UTF-8, String.getBytes writes '?' for it too
+                        append('?');
+                    }
+                    else {
+                        append((char) (0xE0 | (c >> 12)));
+                        append((char) (0x80 | ((c >> 6) & 0x3F)));
+                        append((char) (0x80 | (c & 0x3F)));
+                    }
+                }
+            }
+        }
+    }
+
+    void append(char b) {
+        if (length == bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+
+        bytes[length++] = (byte) b;
+    }
+}
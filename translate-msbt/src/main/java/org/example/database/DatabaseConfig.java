@@ -0,0 +1,67 @@
+package org.example.database;
+
+import lombok.Data;
+
+import java.util.Properties;
+
+/**
+ * Connection settings of {@link EasyDatabaseManager}. The defaults match the
+ * local development database and can be overridden with system properties,
+ * e.g. {@code -Ddb.pool.size=32 -Ddb.url=jdbc:postgresql://host:5432/postgres}.
+ */
+@Data
+public class DatabaseConfig {
+    private String jdbcUrl = "jdbc:postgresql://localhost:5432/postgres";
+    private String username = "postgres";
+    private String password = "postgres";
+
+    // Connections opened at most, callers wait for a free one above that
+    private int maxPoolSize = 10;
+    private long acquireTimeoutMillis = 30_000;
+
+    // Idle connections are checked with isValid before reuse after this long,
+    // closed after idleTimeoutMillis, and every connection is replaced after
+    // maxLifetimeMillis (0 disables the limit)
+    private long validateAfterIdleMillis = 30_000;
+    private long idleTimeoutMillis = 600_000;
+    private long maxLifetimeMillis = 1_800_000;
+
+    // pgjdbc switches a statement to a named server side prepared statement
+    // after it was executed this many times on the same connection
+    private int prepareThreshold = 1;
+    private int preparedStatementCacheQueries = 256;
+    private int preparedStatementCacheSizeMiB = 5;
+
+    public static DatabaseConfig fromSystemProperties() {
+        var config = new DatabaseConfig();
+
+        config.setJdbcUrl(System.getProperty("db.url", config.getJdbcUrl()));
+        config.setUsername(System.getProperty("db.username", config.getUsername()));
+        config.setPassword(System.getProperty("db.password", config.getPassword()));
+        config.setMaxPoolSize(Integer.getInteger("db.pool.size", config.getMaxPoolSize()));
+        config.setAcquireTimeoutMillis(Long.getLong("db.pool.timeout", config.getAcquireTimeoutMillis()));
+        config.setValidateAfterIdleMillis(Long.getLong("db.pool.validateAfterIdle", config.getValidateAfterIdleMillis()));
+        config.setIdleTimeoutMillis(Long.getLong("db.pool.idleTimeout", config.getIdleTimeoutMillis()));
+        config.setMaxLifetimeMillis(Long.getLong("db.pool.maxLifetime", config.getMaxLifetimeMillis()));
+        config.setPrepareThreshold(Integer.getInteger("db.prepareThreshold", config.getPrepareThreshold()));
+        config.setPreparedStatementCacheQueries(Integer.getInteger("db.preparedStatementCacheQueries", config.getPreparedStatementCacheQueries()));
+        config.setPreparedStatementCacheSizeMiB(Integer.getInteger("db.preparedStatementCacheSizeMiB", config.getPreparedStatementCacheSizeMiB()));
+
+        return config;
+    }
+
+    /**
+     * Driver properties for {@code DriverManager.getConnection(url, properties)}.
+     */
+    public Properties toDriverProperties() {
+        var properties = new Properties();
+
+        properties.setProperty("user", username);
+        properties.setProperty("password", password);
+        properties.setProperty("prepareThreshold", String.valueOf(prepareThreshold));
+        properties.setProperty("preparedStatementCacheQueries", String.valueOf(preparedStatementCacheQueries));
+        properties.setProperty("preparedStatementCacheSizeMiB", String.valueOf(preparedStatementCacheSizeMiB));
+
+        return properties;
+    }
+}
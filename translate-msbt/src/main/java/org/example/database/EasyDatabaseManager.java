@@ -8,10 +8,21 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
-public class EasyDatabaseManager {
-    String jdbcUrl = "jdbc:postgresql://localhost:5432/postgres";
-    String username = "postgres";
-    String password = "postgres";
+/**
+ * Runs queries on connections of a {@link ConnectionPool}, so repeated calls
+ * reuse open connections and their server side prepared statements instead of
+ * connecting to the database every time.
+ */
+public class EasyDatabaseManager implements AutoCloseable {
+    private final ConnectionPool pool;
+
+    public EasyDatabaseManager() {
+        this(DatabaseConfig.fromSystemProperties());
+    }
+
+    public EasyDatabaseManager(DatabaseConfig config) {
+        this.pool = new ConnectionPool(config);
+    }
 
     public static Connection getConnection(String jdbcUrl, String username, String password) {
         try {
@@ -22,8 +33,25 @@ public class EasyDatabaseManager {
         }
     }
 
+    /**
+     * Runs the function with a pooled connection, e.g. for work that needs
+     * the driver API or a transaction. The connection must not be kept.
+     */
+    public <T> T withConnection(ThrowingSQLFunction<Connection, T> fn) {
+        try {
+            return pool.withConnection(fn);
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public ConnectionPool.Stats getPoolStats() {
+        return pool.getStats();
+    }
+
     public <T> T singleResult(String query, ThrowingSQLFunction<ResultSet, T> fn) {
-        try (Connection connection = getConnection(jdbcUrl, username, password)) {
+        return withConnection(connection -> {
             try (PreparedStatement statement = connection.prepareStatement(query)) {
                 ResultSet resultSet = statement.executeQuery();
 
@@ -34,17 +62,11 @@ public class EasyDatabaseManager {
                     return null;
                 }
             }
-            catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        });
     }
 
     public <T> List<T> queryList(String query, ThrowingSQLFunction<ResultSet, T> fn) {
-        try (Connection connection = getConnection(jdbcUrl, username, password)) {
+        return withConnection(connection -> {
             try (PreparedStatement statement = connection.prepareStatement(query)) {
                 ResultSet resultSet = statement.executeQuery();
 
@@ -56,47 +78,29 @@ public class EasyDatabaseManager {
 
                 return results;
             }
-            catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        });
     }
 
     public int update(String query, ThrowingSQLConsumer<PreparedStatement> fn) {
-        try (Connection connection = getConnection(jdbcUrl, username, password)) {
+        return withConnection(connection -> {
             try (PreparedStatement statement = connection.prepareStatement(query)) {
                 fn.accept(statement);
                 return statement.executeUpdate();
             }
-            catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        });
     }
 
     public int batchUpdate(String query, ThrowingSQLConsumer<PreparedStatement> fn) {
-        try (Connection connection = getConnection(jdbcUrl, username, password)) {
+        return withConnection(connection -> {
             try (PreparedStatement statement = connection.prepareStatement(query)) {
                 fn.accept(statement);
                 return statement.executeBatch().length;
             }
-            catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        });
     }
 
     public <T> List<T> queryList(String query, ThrowingSQLConsumer<PreparedStatement> fn, ThrowingSQLFunction<ResultSet, T> fn2) {
-        try (Connection connection = getConnection(jdbcUrl, username, password)) {
+        return withConnection(connection -> {
             try (PreparedStatement statement = connection.prepareStatement(query)) {
                 fn.accept(statement);
                 ResultSet resultSet = statement.executeQuery();
@@ -109,13 +113,11 @@ public class EasyDatabaseManager {
 
                 return results;
             }
-            catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        });
+    }
 
+    @Override
+    public void close() {
+        pool.close();
     }
 }
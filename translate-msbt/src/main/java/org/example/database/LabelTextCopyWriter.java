@@ -0,0 +1,86 @@
+package org.example.database;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Streams rows into {@code msbt_text.labels_text} with {@code COPY ... FROM STDIN}.
+ *
+ * Each row is encoded straight into a reusable {@link CopyRow} in the COPY
+ * text format (tab separated, UTF-8, backslash escapes) and handed to the driver's
+ * copy stream, so loading the whole corpus keeps no rows in memory. The rows
+ * are committed by {@link #close()}; after a failure {@link #cancel()} discards
+ * everything written so far.
+ */
+public class LabelTextCopyWriter implements Closeable {
+    public static final String COPY_QUERY = """
+        COPY "msbt_text"."labels_text" ("filename", "id_label", "label", "table_index", "original_text", "translated_text", "translated")
+        FROM STDIN
+        """;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final PGCopyOutputStream copyStream;
+    private final CopyRow row = new CopyRow();
+    private long rows;
+
+    public LabelTextCopyWriter(Connection connection) throws SQLException {
+        this.copyStream = new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_QUERY, BUFFER_SIZE);
+    }
+
+    public void writeRow(String filename, int idLabel, String label, int tableIndex, String originalText, String translatedText, boolean translated) throws IOException {
+        encodeRow(row, filename, idLabel, label, tableIndex, originalText, translatedText, translated);
+        copyStream.write(row.getBytes(), 0, row.getLength());
+        rows++;
+    }
+
+    static void encodeRow(CopyRow row, String filename, int idLabel, String label, int tableIndex, String originalText, String translatedText, boolean translated) {
+        row.clear();
+
+        row.appendText(filename);
+        row.append('\t');
+        row.appendText(Integer.toString(idLabel));
+        row.append('\t');
+        row.appendText(label);
+        row.append('\t');
+        row.appendText(Integer.toString(tableIndex));
+        row.append('\t');
+        row.appendText(originalText);
+        row.append('\t');
+        row.appendText(translatedText);
+        row.append('\t');
+        row.append(translated ? 't' : 'f');
+        row.append('\n');
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Ends the COPY, the rows become visible when this returns.
+     */
+    @Override
+    public void close() throws IOException {
+        copyStream.close();
+    }
+
+    /**
+     * Aborts the COPY, none of the rows are inserted.
+     */
+    public void cancel() {
+        try {
+            if (copyStream.isActive()) {
+                copyStream.cancelCopy();
+            }
+        }
+        catch (SQLException e) {
+            // the connection is broken, the pool discards it
+        }
+    }
+}
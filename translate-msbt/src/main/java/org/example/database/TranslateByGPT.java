@@ -484,6 +484,7 @@ public class TranslateByGPT {
             int totalChar = resultSet.getInt("total_char");
 
             log.info("Summary: " + totalLines + " lines, " + totalChar + " char");
+            log.info("Connection pool: " + dbManager.getPoolStats());
 
             return -1;
         });
@@ -0,0 +1,285 @@
+package org.example.database
+
+import spock.lang.Specification
+
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.Proxy
+import java.sql.Connection
+import java.sql.Driver
+import java.sql.DriverManager
+import java.sql.DriverPropertyInfo
+import java.sql.SQLException
+import java.sql.SQLFeatureNotSupportedException
+import java.sql.SQLTransientConnectionException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.logging.Logger
+
+class ConnectionPoolSpec extends Specification {
+
+    static final String URL = "jdbc:fake-pool:test"
+
+    static FakeDriver driver = new FakeDriver()
+
+    /**
+     * State of one fake connection, the pool only sees the proxy.
+     */
+    static class FakeConnection {
+        int id
+        boolean closed = false
+        boolean valid = true
+        boolean autoCommit = true
+        int rollbacks = 0
+        int validations = 0
+
+        Connection proxy() {
+            (Connection) Proxy.newProxyInstance(FakeConnection.classLoader, [Connection] as Class[], { proxy, method, args ->
+                switch (method.name) {
+                    case "isClosed": return closed
+                    case "close": closed = true; return null
+                    case "isValid": validations++; return valid && !closed
+                    case "getAutoCommit": return autoCommit
+                    case "setAutoCommit": autoCommit = args[0]; return null
+                    case "rollback": rollbacks++; return null
+                    case "hashCode": return id
+                    case "equals": return proxy.is(args[0])
+                    case "toString": return "connection " + id
+                    default: throw new UnsupportedOperationException(method.name)
+                }
+            } as InvocationHandler)
+        }
+    }
+
+    static class FakeDriver implements Driver {
+        List<FakeConnection> opened = Collections.synchronizedList([])
+        volatile boolean failing = false
+
+        Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null
+            }
+
+            if (failing) {
+                throw new SQLException("connection refused")
+            }
+
+            def connection = new FakeConnection(id: opened.size())
+            opened << connection
+            return connection.proxy()
+        }
+
+        boolean acceptsURL(String url) { url.startsWith("jdbc:fake-pool:") }
+
+        DriverPropertyInfo[] getPropertyInfo(String url, Properties info) { new DriverPropertyInfo[0] }
+
+        int getMajorVersion() { 1 }
+
+        int getMinorVersion() { 0 }
+
+        boolean jdbcCompliant() { false }
+
+        Logger getParentLogger() throws SQLFeatureNotSupportedException { throw new SQLFeatureNotSupportedException() }
+    }
+
+    ConnectionPool pool
+
+    void setupSpec() {
+        DriverManager.registerDriver(driver)
+    }
+
+    void cleanupSpec() {
+        DriverManager.deregisterDriver(driver)
+    }
+
+    void setup() {
+        driver.opened.clear()
+        driver.failing = false
+    }
+
+    void cleanup() {
+        pool?.close()
+    }
+
+    ConnectionPool createPool(Map settings = [:]) {
+        def config = new DatabaseConfig()
+        config.jdbcUrl = URL
+        config.maxPoolSize = 3
+        config.acquireTimeoutMillis = 1_000
+        config.validateAfterIdleMillis = 60_000
+        config.idleTimeoutMillis = 60_000
+        config.maxLifetimeMillis = 60_000
+        settings.each { name, value -> config[name] = value }
+
+        pool = new ConnectionPool(config)
+        return pool
+    }
+
+    int connectionId(Connection connection) {
+        connection.hashCode()
+    }
+
+    void "idle connections are reused last in first out"() {
+        setup:
+        createPool()
+
+        when: 'three connections are in use at once and released innermost first'
+        pool.withConnection { a -> pool.withConnection { b -> pool.withConnection { c -> null } } }
+        int reused = pool.withConnection { connectionId(it) }
+
+        then: 'the outermost, released last, is handed out first'
+        driver.opened.size() == 3
+        reused == 0
+        pool.stats.open() == 3
+        pool.stats.idle() == 3
+    }
+
+    void "recently used connections are reused without validation"() {
+        setup:
+        createPool()
+
+        when:
+        int first = pool.withConnection { connectionId(it) }
+        int second = pool.withConnection { connectionId(it) }
+
+        then:
+        first == second
+        driver.opened.size() == 1
+        driver.opened[0].validations == 0
+    }
+
+    void "expired connections are closed instead of reused"() {
+        setup:
+        createPool(maxLifetimeMillis: 50)
+
+        when:
+        int first = pool.withConnection { connectionId(it) }
+        Thread.sleep(80)
+        int second = pool.withConnection { connectionId(it) }
+
+        then:
+        first != second
+        driver.opened[first].closed
+        pool.stats.discarded() >= 1
+    }
+
+    void "connections idle for too long are validated and invalid ones discarded"() {
+        setup:
+        createPool(validateAfterIdleMillis: 0)
+        pool.withConnection { null }
+        driver.opened[0].valid = false
+
+        when:
+        int id = pool.withConnection { connectionId(it) }
+
+        then:
+        id == 1
+        driver.opened[0].validations == 1
+        driver.opened[0].closed
+        pool.stats.discarded() == 1
+        pool.stats.open() == 1
+    }
+
+    void "a connection that failed is validated and discarded when broken"() {
+        setup:
+        createPool()
+
+        when:
+        pool.withConnection { connection ->
+            driver.opened[0].valid = false
+            throw new SQLException("connection reset")
+        }
+
+        then:
+        thrown(SQLException)
+        driver.opened[0].closed
+        pool.stats.open() == 0
+
+        when: 'a failure on a healthy connection keeps it'
+        pool.withConnection { throw new SQLException("syntax error") }
+
+        then:
+        thrown(SQLException)
+        !driver.opened[1].closed
+        pool.stats.idle() == 1
+    }
+
+    void "open transactions are rolled back before the connection goes back to the pool"() {
+        setup:
+        createPool()
+
+        when:
+        pool.withConnection { it.autoCommit = false; null }
+
+        then:
+        driver.opened[0].rollbacks == 1
+        driver.opened[0].autoCommit
+    }
+
+    void "callers wait up to the acquire timeout when every connection is in use"() {
+        setup:
+        createPool(maxPoolSize: 1, acquireTimeoutMillis: 50)
+        def inUse = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def holder = Thread.start {
+            pool.withConnection { inUse.countDown(); release.await(5, TimeUnit.SECONDS); null }
+        }
+        inUse.await(5, TimeUnit.SECONDS)
+
+        when:
+        pool.withConnection { null }
+
+        then:
+        thrown(SQLTransientConnectionException)
+        pool.stats.timeouts() == 1
+
+        when: 'the connection is released'
+        release.countDown()
+        holder.join()
+        int id = pool.withConnection { connectionId(it) }
+
+        then:
+        id == 0
+        driver.opened.size() == 1
+    }
+
+    void "permits are released when opening a connection fails"() {
+        setup:
+        createPool(maxPoolSize: 1, acquireTimeoutMillis: 50)
+        driver.failing = true
+
+        when:
+        pool.withConnection { null }
+
+        then:
+        def e = thrown(SQLException)
+        e.message == "connection refused"
+
+        when: 'the only permit is available again'
+        driver.failing = false
+        int id = pool.withConnection { connectionId(it) }
+
+        then:
+        id == 0
+        pool.stats.timeouts() == 0
+    }
+
+    void "permits are released when the work fails"() {
+        setup:
+        createPool(maxPoolSize: 1, acquireTimeoutMillis: 50)
+
+        when:
+        3.times {
+            try {
+                pool.withConnection { throw new IllegalStateException("bug") }
+            }
+            catch (IllegalStateException ignored) {
+            }
+        }
+        int id = pool.withConnection { connectionId(it) }
+
+        then:
+        id == 0
+        pool.stats.timeouts() == 0
+        pool.stats.acquisitions() == 4
+    }
+}
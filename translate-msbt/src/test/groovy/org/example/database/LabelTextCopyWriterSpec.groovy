@@ -0,0 +1,97 @@
+package org.example.database
+
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class LabelTextCopyWriterSpec extends Specification {
+
+    static String encode(String value) {
+        CopyRow row = new CopyRow()
+        row.appendText(value)
+        return new String(row.bytes, 0, row.length, StandardCharsets.UTF_8)
+    }
+
+    static byte[] encodedBytes(String value) {
+        CopyRow row = new CopyRow()
+        row.appendText(value)
+        return Arrays.copyOf(row.bytes, row.length)
+    }
+
+    void "special characters are escaped"() {
+        expect:
+        encode(value) == expected
+
+        where:
+        value                    | expected
+        "plain text"             | "plain text"
+        "back\\slash"            | "back\\\\slash"
+        "tab\there"              | "tab\\there"
+        "line\nbreak"            | "line\\nbreak"
+        "carriage\r\nreturn"     | "carriage\\r\\nreturn"
+        "\\N"                    | "\\\\N"
+        ""                       | ""
+    }
+
+    void "null is written as the null marker"() {
+        expect:
+        encode(null) == "\\N"
+    }
+
+    void "text is encoded as UTF-8"() {
+        expect:
+        encodedBytes(value) == value.getBytes(StandardCharsets.UTF_8)
+
+        where:
+        value << [
+            "Olá, você está bem?",
+            "ゼルダの伝説",
+            "emoji 😀 and 🎮",
+            "𐐷 at the start",
+            "ends with 􏿿"
+        ]
+    }
+
+    void "a lone surrogate becomes a question mark"() {
+        expect:
+        encode(value) == expected
+        encodedBytes(value) == value.getBytes(StandardCharsets.UTF_8)
+
+        where:
+        value            | expected
+        "a\uD83Db"       | "a?b"
+        "a\uDE00b"       | "a?b"
+        "end \uD83D"     | "end ?"
+    }
+
+    void "rows are tab separated and end with a newline"() {
+        setup:
+        CopyRow row = new CopyRow()
+
+        when:
+        LabelTextCopyWriter.encodeRow(row, "ActorMsg/Attachment.msbt", 3, "Name\t1", 7, "Texto\noriginal", null, true)
+
+        then:
+        new String(row.bytes, 0, row.length, StandardCharsets.UTF_8) ==
+            "ActorMsg/Attachment.msbt\t3\tName\\t1\t7\tTexto\\noriginal\t\\N\tt\n"
+
+        when: 'the buffer is reused for the next row'
+        LabelTextCopyWriter.encodeRow(row, "a", 0, "b", 1, "", "c", false)
+
+        then:
+        new String(row.bytes, 0, row.length, StandardCharsets.UTF_8) == "a\t0\tb\t1\t\tc\tf\n"
+    }
+
+    void "the buffer grows for long rows"() {
+        setup:
+        String text = "ção\t" * 5000
+        CopyRow row = new CopyRow()
+
+        when:
+        LabelTextCopyWriter.encodeRow(row, "file", 1, "label", 0, text, text, false)
+
+        then:
+        new String(row.bytes, 0, row.length, StandardCharsets.UTF_8) ==
+            "file\t1\tlabel\t0\t" + ("ção\\t" * 5000) + "\t" + ("ção\\t" * 5000) + "\tf\n"
+    }
+}